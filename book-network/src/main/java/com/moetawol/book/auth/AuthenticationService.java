@@ -2,13 +2,15 @@ package com.moetawol.book.auth;
 
 import com.moetawol.book.email.EmailService;
 import com.moetawol.book.email.EmailTemplateName;
+import com.moetawol.book.exception.ActivationTokenException;
 import com.moetawol.book.role.RoleRepository;
+import com.moetawol.book.security.AuthenticatedUser;
 import com.moetawol.book.security.JwtService;
+import com.moetawol.book.security.UserPrincipalCache;
 import com.moetawol.book.user.Token;
 import com.moetawol.book.user.TokenRepository;
 import com.moetawol.book.user.User;
 import com.moetawol.book.user.UserRepository;
-import jakarta.mail.MessagingException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -34,6 +36,7 @@ public class AuthenticationService {
     private final RoleRepository roleRepository;
     private final EmailService emailService;
     private final TokenRepository tokenRepository;
+    private final UserPrincipalCache userPrincipalCache;
 
     @Value("${application.mailing.frontend.activation-url}")
     private String activationUrl;
@@ -69,7 +72,7 @@ public class AuthenticationService {
         return generatedToken;
     }
 
-    private void sendValidationEmail(User user) throws MessagingException {
+    private void sendValidationEmail(User user) {
         var newToken = generateAndSaveActivationToken(user);
 
         emailService.sendEmail(
@@ -82,7 +85,9 @@ public class AuthenticationService {
         );
     }
 
-    public void register(RegistrationRequest request) throws MessagingException {
+    // The user, the activation token and the queued email are committed together
+    @Transactional
+    public void register(RegistrationRequest request) {
         var userRole = roleRepository.findByName(USER_ROLE_NAME)
                 // todo - better exception handling
                 .orElseThrow(() -> new IllegalStateException("ROLE USER was not initiated"));
@@ -109,7 +114,8 @@ public class AuthenticationService {
 
         var claims = new HashMap<String, Object>();
         var user = ((User) auth.getPrincipal());
-        claims.put("fullName", user.getFullName());
+        claims.put(AuthenticatedUser.FULL_NAME_CLAIM, user.getFullName());
+        claims.put(AuthenticatedUser.USER_ID_CLAIM, user.getId().toString());
 
         var jwtToken = jwtService.generateToken(claims, (User) auth.getPrincipal());
         return AuthenticationResponse.builder()
@@ -117,20 +123,22 @@ public class AuthenticationService {
                 .build();
     }
 
-    @Transactional
-    public void activateAccount(String token) throws MessagingException {
+    // Keeps the replacement token and its email when the expired token is rejected
+    @Transactional(noRollbackFor = ActivationTokenException.class)
+    public void activateAccount(String token) {
         Token savedToken = tokenRepository.findByToken(token)
                 // todo exception has to be defined
                 .orElseThrow(() -> new RuntimeException("Invalid token"));
         if (LocalDateTime.now().isAfter(savedToken.getExpiresAt())) {
             sendValidationEmail(savedToken.getUser());
-            throw new RuntimeException("Activation token has expired. A new token has been send to the same email address");
+            throw new ActivationTokenException("Activation token has expired. A new token has been send to the same email address");
         }
 
         var user = userRepository.findById(savedToken.getUser().getId())
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
         user.setEnabled(true);
         userRepository.save(user);
+        userPrincipalCache.invalidate(user.getEmail());
 
         savedToken.setValidatedAt(LocalDateTime.now());
         tokenRepository.save(savedToken);
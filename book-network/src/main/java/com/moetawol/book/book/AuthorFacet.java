@@ -0,0 +1,8 @@
+package com.moetawol.book.book;
+
+/**
+ * An author with the number of books the caller can currently borrow.
+ * {@code key} is the normalized name used to page through the author's books.
+ */
+public record AuthorFacet(String key, String name, long bookCount) {
+}
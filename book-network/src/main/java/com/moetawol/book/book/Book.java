@@ -12,6 +12,7 @@ import lombok.Setter;
 import lombok.experimental.SuperBuilder;
 
 import java.util.List;
+import java.util.UUID;
 
 @Getter
 @Setter
@@ -24,11 +25,21 @@ public class Book extends BaseEntity {
     private String title;
     private String authorName;
     private String isbn;
+    // Canonical ISBN-13 derived from isbn, indexed for exact-match lookups, see Isbn#normalize
+    private String isbnNormalized;
     private String synopsis;
     private String bookCover;
+    private String bookCoverHash;
+    private Long bookCoverSize;
     private boolean archived;
     private boolean shareable;
-     @ManyToOne
+    // Rating aggregate maintained on each new feedback, see BookRepository#addRating
+    private double rateSum;
+    private long rateCount;
+    private double rate;
+    // Current borrower, null while the book is available; claimed atomically by BookRepository#claimForBorrowing
+    private UUID borrowerId;
+     @ManyToOne(fetch = FetchType.LAZY)
      @JoinColumn(name = "owner_id")
      private User owner;
     @OneToMany(mappedBy = "book")
@@ -36,18 +47,9 @@ public class Book extends BaseEntity {
     @OneToMany(mappedBy = "book")
     private List<BookTransactionHistory> histories;
 
-    @Transient
-    public double getRate() {
-        if (feedbacks == null || feedbacks.isEmpty()) {
-            return 0.0;
-        }
-        var rate = this.feedbacks.stream()
-                .mapToDouble(Feedback::getNote)
-                .average()
-                .orElse(0.0);
-        double roundedRate = Math.round(rate * 10.0) / 10.0;
-
-        // Return 4.0 if roundedRate is less than 4.5, otherwise return 4.5
-        return roundedRate;
+    @PrePersist
+    @PreUpdate
+    void normalizeIsbn() {
+        isbnNormalized = Isbn.normalize(isbn);
     }
 }
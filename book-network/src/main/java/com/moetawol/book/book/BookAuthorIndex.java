@@ -0,0 +1,172 @@
+package com.moetawol.book.book;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Author facets over the displayable books (not archived, shareable), maintained incrementally.
+ * Author names are interned by their normalized form, so "Frank Herbert" and "frank  herbert" are one author.
+ * Counts exclude the caller's own books, as in {@link BookRepository#findAllDisplayableBooks}.
+ */
+@Service
+public class BookAuthorIndex extends BookIndex<BookAuthorIndex.State, BookSearchDocument> {
+
+    private static final Comparator<Listing> BY_TITLE = Comparator
+            .comparing(Listing::title, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+            .thenComparing(Listing::id);
+
+    public BookAuthorIndex(BookRepository bookRepository, BookKeysetLoader loader) {
+        super("Author index", loader, bookRepository::findSearchDocumentsAfter, BookSearchDocument::id, State::new);
+    }
+
+    /**
+     * {@code nextKey} is the key to pass as {@code after} for the next page, null on the last page or in offset mode.
+     */
+    public record AuthorPage(List<AuthorFacet> authors, long total, String nextKey) {
+    }
+
+    public record AuthorBooks(List<UUID> bookIds, long total) {
+    }
+
+    public AuthorPage findAuthors(UUID userId, int page, int size) {
+        lock.readLock().lock();
+        try {
+            Map<Author, Integer> own = state.ownBooks.getOrDefault(userId, Map.of());
+            List<AuthorFacet> facets = facets(state.authors.values(), own)
+                    .skip((long) page * size)
+                    .limit(size)
+                    .toList();
+            return new AuthorPage(facets, total(own), null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Seeks to the authors sorted after {@code afterKey} (all of them when empty) instead of skipping earlier pages.
+     */
+    public AuthorPage findAuthorsAfter(UUID userId, String afterKey, int size) {
+        lock.readLock().lock();
+        try {
+            Map<Author, Integer> own = state.ownBooks.getOrDefault(userId, Map.of());
+            Collection<Author> remaining = afterKey.isEmpty()
+                    ? state.authors.values()
+                    : state.authors.tailMap(afterKey, false).values();
+            // One extra facet tells whether a next page exists
+            List<AuthorFacet> facets = facets(remaining, own).limit(size + 1L).toList();
+            boolean hasNext = facets.size() > size;
+            List<AuthorFacet> pageFacets = hasNext ? facets.subList(0, size) : facets;
+            return new AuthorPage(pageFacets, total(own), hasNext ? pageFacets.get(size - 1).key() : null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public AuthorBooks findBooks(String author, UUID userId, int page, int size) {
+        lock.readLock().lock();
+        try {
+            Author found = state.authors.get(normalize(author));
+            if (found == null) {
+                return new AuthorBooks(List.of(), 0);
+            }
+            int own = state.ownBooks.getOrDefault(userId, Map.of()).getOrDefault(found, 0);
+            List<UUID> bookIds = found.books.stream()
+                    .filter(listing -> !listing.ownerId().equals(userId))
+                    .skip((long) page * size)
+                    .limit(size)
+                    .map(Listing::id)
+                    .toList();
+            return new AuthorBooks(bookIds, found.books.size() - own);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Authors whose every displayable book belongs to the caller are not listed
+    private static Stream<AuthorFacet> facets(Collection<Author> authors, Map<Author, Integer> own) {
+        return authors.stream()
+                .map(author -> new AuthorFacet(author.key, author.name, author.books.size() - own.getOrDefault(author, 0)))
+                .filter(facet -> facet.bookCount() > 0);
+    }
+
+    private long total(Map<Author, Integer> own) {
+        long hidden = own.entrySet().stream()
+                .filter(entry -> entry.getValue() == entry.getKey().books.size())
+                .count();
+        return state.authors.size() - hidden;
+    }
+
+    private static String normalize(String name) {
+        return String.join(" ", BookSearchIndex.tokenize(name));
+    }
+
+    @Override
+    protected void add(State state, BookSearchDocument book) {
+        String key = normalize(book.authorName());
+        // Ownerless books are never displayable, see BookSearchDocument#isVisibleTo
+        if (book.archived() || !book.shareable() || book.ownerId() == null || key.isEmpty()) {
+            return;
+        }
+        Author author = state.authors.computeIfAbsent(key, normalized -> new Author(normalized, book.authorName().strip()));
+        Listing listing = new Listing(book.id(), book.title(), book.ownerId(), author);
+        author.books.add(listing);
+        state.listings.put(book.id(), listing);
+        state.ownBooks.computeIfAbsent(book.ownerId(), owner -> new HashMap<>()).merge(author, 1, Integer::sum);
+    }
+
+    @Override
+    protected void remove(State state, UUID bookId) {
+        Listing listing = state.listings.remove(bookId);
+        if (listing == null) {
+            return;
+        }
+        Author author = listing.author();
+        author.books.remove(listing);
+        if (author.books.isEmpty()) {
+            state.authors.remove(author.key);
+        }
+        Map<Author, Integer> own = state.ownBooks.get(listing.ownerId());
+        own.computeIfPresent(author, (key, count) -> count == 1 ? null : count - 1);
+        if (own.isEmpty()) {
+            state.ownBooks.remove(listing.ownerId());
+        }
+    }
+
+    @Override
+    protected int size(State state) {
+        return state.authors.size();
+    }
+
+    private record Listing(UUID id, String title, UUID ownerId, Author author) {
+    }
+
+    // Identity-based on purpose: there is a single instance per normalized name
+    private static class Author {
+        private final String key;
+        private final String name;
+        private final TreeSet<Listing> books = new TreeSet<>(BY_TITLE);
+
+        Author(String key, String name) {
+            this.key = key;
+            this.name = name;
+        }
+    }
+
+    // Guarded by the index lock
+    static class State {
+        // Keyed and sorted by normalized name
+        private final TreeMap<String, Author> authors = new TreeMap<>();
+        private final Map<UUID, Listing> listings = new HashMap<>();
+        // Displayable books per owner and author, subtracted from what that owner sees
+        private final Map<UUID, Map<Author, Integer>> ownBooks = new HashMap<>();
+    }
+}
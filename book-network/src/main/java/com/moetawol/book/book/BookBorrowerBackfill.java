@@ -0,0 +1,33 @@
+package com.moetawol.book.book;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * One-off backfill of {@link Book#getBorrowerId()} from the open loans in the transaction history,
+ * for databases that had loans before the column existed.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class BookBorrowerBackfill implements ApplicationRunner {
+
+    private final BookRepository bookRepository;
+
+    @Value("${application.borrowing.backfill-on-startup:false}")
+    private boolean backfillOnStartup;
+
+    @Override
+    @Transactional
+    public void run(ApplicationArguments args) {
+        if (backfillOnStartup) {
+            int updated = bookRepository.backfillBorrowers();
+            log.info("Borrower backfill checked {} books", updated);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.moetawol.book.book;
+
+import java.util.UUID;
+
+/**
+ * Published by {@link BookService} whenever a book is created or one of its fields changes.
+ * Listeners that keep derived state (e.g. {@link BookIndexUpdater}) react once the transaction has committed.
+ */
+public record BookChangedEvent(UUID bookId) {
+}
@@ -1,10 +1,16 @@
 package com.moetawol.book.book;
 
 import com.moetawol.book.common.PageResponse;
+import com.moetawol.book.common.TotalMode;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -16,8 +22,14 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -26,7 +38,13 @@ import java.util.UUID;
 @Tag(name = "Book")
 public class BookController {
 
+    private static final Duration COVER_MAX_AGE = Duration.ofDays(365);
+    // Clients keep the body but revalidate it with If-None-Match on every poll
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final BookService service;
+    private final BookImportService importService;
+    private final BookExportService exportService;
 
     @PostMapping
     public ResponseEntity<UUID> saveBook(
@@ -36,47 +54,205 @@ public class BookController {
         return ResponseEntity.ok(service.save(request, connectedUser));
     }
 
+    // Bodies are read as streams, so their size is only bounded by the server's request limits
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<BookImportReport> importCsv(
+            InputStream body,
+            Authentication connectedUser
+    ) throws IOException {
+        return ResponseEntity.ok(importService.importBooks(body, BookFileFormat.CSV, connectedUser));
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BookImportReport> importNdjson(
+            InputStream body,
+            Authentication connectedUser
+    ) throws IOException {
+        return ResponseEntity.ok(importService.importBooks(body, BookFileFormat.NDJSON, connectedUser));
+    }
+
+    // A matching If-None-Match gets a 304 from checkNotModified before anything is loaded
     @GetMapping("/{book-id}")
     public ResponseEntity<BookResponse> findBookById(
-            @PathVariable("book-id") UUID bookId
+            @PathVariable("book-id") UUID bookId,
+            @RequestParam(name = "inlineCover", defaultValue = "false", required = false) boolean inlineCover,
+            WebRequest request
     ) {
-        return ResponseEntity.ok(service.findById(bookId));
+        String eTag = service.findBookETag(bookId, inlineCover);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(REVALIDATE)
+                .eTag(eTag)
+                .body(service.findById(bookId, inlineCover));
     }
 //
     @GetMapping
     public ResponseEntity<PageResponse<BookResponse>> findAllBooks(
+            @RequestParam(name = "page", defaultValue = "0", required = false) int page,
+            @RequestParam(name = "size", defaultValue = "10", required = false) int size,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "total", defaultValue = "EXACT", required = false) TotalMode total,
+            @RequestParam(name = "inlineCover", defaultValue = "false", required = false) boolean inlineCover,
+            Authentication connectedUser
+    ) {
+        return ResponseEntity.ok(service.findAllBooks(page, size, cursor, total, inlineCover, connectedUser));
+    }
+
+    // Streaming variants of the cursor mode: rows are written as they are read, so size may be large
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllBooks(
+            @RequestParam(name = "size", defaultValue = "1000", required = false) int size,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "inlineCover", defaultValue = "false", required = false) boolean inlineCover,
+            Authentication connectedUser
+    ) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(service.streamAllBooks(size, cursor, inlineCover, connectedUser));
+    }
+
+    @GetMapping("/owner/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllBooksByOwner(
+            @RequestParam(name = "size", defaultValue = "1000", required = false) int size,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "inlineCover", defaultValue = "false", required = false) boolean inlineCover,
+            Authentication connectedUser
+    ) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(service.streamAllBooksByOwner(size, cursor, inlineCover, connectedUser));
+    }
+
+    @GetMapping("/borrowed/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllBorrowedBooks(
+            @RequestParam(name = "size", defaultValue = "1000", required = false) int size,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            Authentication connectedUser
+    ) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(service.streamAllBorrowedBooks(size, cursor, connectedUser));
+    }
+
+    // Whole shelf or lending history in one download, read through a database cursor instead of pages
+    @GetMapping("/owner/export")
+    public ResponseEntity<StreamingResponseBody> exportBooksByOwner(
+            @RequestParam(name = "format", defaultValue = "NDJSON", required = false) BookFileFormat format,
+            @RequestParam(name = "compressed", defaultValue = "false", required = false) boolean compressed,
+            Authentication connectedUser
+    ) {
+        return export("books", format, compressed,
+                out -> exportService.exportBooks(out, format, compressed, connectedUser));
+    }
+
+    @GetMapping("/history/export")
+    public ResponseEntity<StreamingResponseBody> exportHistory(
+            @RequestParam(name = "format", defaultValue = "NDJSON", required = false) BookFileFormat format,
+            @RequestParam(name = "compressed", defaultValue = "false", required = false) boolean compressed,
+            Authentication connectedUser
+    ) {
+        return export("history", format, compressed,
+                out -> exportService.exportHistory(out, format, compressed, connectedUser));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<PageResponse<BookResponse>> searchBooks(
+            @RequestParam(name = "q") String query,
+            @RequestParam(name = "page", defaultValue = "0", required = false) int page,
+            @RequestParam(name = "size", defaultValue = "10", required = false) int size,
+            Authentication connectedUser
+    ) {
+        return ResponseEntity.ok(service.search(query, page, size, connectedUser));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<BookSuggestion>> suggestBooks(
+            @RequestParam(name = "prefix") String prefix,
+            @RequestParam(name = "limit", defaultValue = "10", required = false) int limit
+    ) {
+        return ResponseEntity.ok(service.suggest(prefix, limit));
+    }
+
+    @GetMapping("/isbn/{isbn}")
+    public ResponseEntity<PageResponse<BookResponse>> findAllBooksByIsbn(
+            @PathVariable("isbn") String isbn,
+            @RequestParam(name = "page", defaultValue = "0", required = false) int page,
+            @RequestParam(name = "size", defaultValue = "10", required = false) int size,
+            Authentication connectedUser
+    ) {
+        return ResponseEntity.ok(service.findAllBooksByIsbn(isbn, page, size, connectedUser));
+    }
+
+    @GetMapping("/authors")
+    public ResponseEntity<PageResponse<AuthorFacet>> findAuthors(
+            @RequestParam(name = "page", defaultValue = "0", required = false) int page,
+            @RequestParam(name = "size", defaultValue = "20", required = false) int size,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            Authentication connectedUser
+    ) {
+        return ResponseEntity.ok(service.findAuthors(page, size, cursor, connectedUser));
+    }
+
+    @GetMapping("/authors/{author}/books")
+    public ResponseEntity<PageResponse<BookResponse>> findAllBooksByAuthor(
+            @PathVariable("author") String author,
             @RequestParam(name = "page", defaultValue = "0", required = false) int page,
             @RequestParam(name = "size", defaultValue = "10", required = false) int size,
             Authentication connectedUser
     ) {
-        return ResponseEntity.ok(service.findAllBooks(page, size, connectedUser));
+        return ResponseEntity.ok(service.findAllBooksByAuthor(author, page, size, connectedUser));
     }
 
     @GetMapping("/owner")
     public ResponseEntity<PageResponse<BookResponse>> findAllBooksByOwner(
             @RequestParam(name = "page", defaultValue = "0", required = false) int page,
             @RequestParam(name = "size", defaultValue = "10", required = false) int size,
-            Authentication connectedUser
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "total", defaultValue = "EXACT", required = false) TotalMode total,
+            @RequestParam(name = "inlineCover", defaultValue = "false", required = false) boolean inlineCover,
+            Authentication connectedUser,
+            WebRequest request
     ) {
-        return ResponseEntity.ok(service.findAllBooksByOwner(page, size, connectedUser));
+        String eTag = service.findAllBooksByOwnerETag(page, size, cursor, total, inlineCover, connectedUser);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(REVALIDATE)
+                .eTag(eTag)
+                .body(service.findAllBooksByOwner(page, size, cursor, total, inlineCover, connectedUser));
     }
 
     @GetMapping("/borrowed")
     public ResponseEntity<PageResponse<BorrowedBookResponse>> findAllBorrowedBooks(
             @RequestParam(name = "page", defaultValue = "0", required = false) int page,
             @RequestParam(name = "size", defaultValue = "10", required = false) int size,
-            Authentication connectedUser
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "total", defaultValue = "EXACT", required = false) TotalMode total,
+            Authentication connectedUser,
+            WebRequest request
     ) {
-        return ResponseEntity.ok(service.findAllBorrowedBooks(page, size, connectedUser));
+        String eTag = service.findAllBorrowedBooksETag(page, size, cursor, total, connectedUser);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(REVALIDATE)
+                .eTag(eTag)
+                .body(service.findAllBorrowedBooks(page, size, cursor, total, connectedUser));
     }
 
     @GetMapping("/returned")
     public ResponseEntity<PageResponse<BorrowedBookResponse>> findAllReturnedBooks(
             @RequestParam(name = "page", defaultValue = "0", required = false) int page,
             @RequestParam(name = "size", defaultValue = "10", required = false) int size,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "total", defaultValue = "EXACT", required = false) TotalMode total,
             Authentication connectedUser
     ) {
-        return ResponseEntity.ok(service.findAllReturnedBooks(page, size, connectedUser));
+        return ResponseEntity.ok(service.findAllReturnedBooks(page, size, cursor, total, connectedUser));
     }
 
     @PatchMapping("/shareable/{book-id}")
@@ -119,6 +295,23 @@ public class BookController {
         return ResponseEntity.ok(service.approveReturnBorrowedBook(bookId, connectedUser));
     }
 
+    // Range, If-None-Match and If-Modified-Since are handled by Spring MVC for Resource bodies,
+    // and the file is streamed to the client instead of being read on the heap
+    @GetMapping("/cover/{book-id}")
+    public ResponseEntity<Resource> findBookCover(
+            @PathVariable("book-id") UUID bookId
+    ) {
+        BookCover cover = service.findBookCover(bookId);
+        var response = ResponseEntity.ok()
+                .contentType(cover.mediaType())
+                .cacheControl(CacheControl.maxAge(COVER_MAX_AGE).cachePrivate())
+                .lastModified(cover.lastModified());
+        if (cover.contentHash() != null) {
+            response.eTag(cover.contentHash());
+        }
+        return response.body(cover.resource());
+    }
+
     @PostMapping(value = "/cover/{book-id}", consumes = "multipart/form-data")
     public ResponseEntity<?> uploadBookCoverPicture(
             @PathVariable("book-id") UUID bookId,
@@ -129,4 +322,17 @@ public class BookController {
         service.uploadBookCoverPicture(file, connectedUser, bookId);
         return ResponseEntity.accepted().build();
     }
+
+    private ResponseEntity<StreamingResponseBody> export(
+            String name,
+            BookFileFormat format,
+            boolean compressed,
+            StreamingResponseBody body
+    ) {
+        String filename = name + "." + format.extension() + (compressed ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(compressed ? MediaType.parseMediaType("application/gzip") : format.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(exportService.admit(body));
+    }
 }
@@ -0,0 +1,14 @@
+package com.moetawol.book.book;
+
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+
+import java.time.Instant;
+
+public record BookCover(
+        Resource resource,
+        MediaType mediaType,
+        String contentHash,
+        Instant lastModified
+) {
+}
@@ -0,0 +1,20 @@
+package com.moetawol.book.book;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One book of a shelf export. Carries the {@link BookRequest} fields, so an exported file can be imported again.
+ */
+public record BookExport(
+        UUID id,
+        String title,
+        String authorName,
+        String isbn,
+        String synopsis,
+        boolean shareable,
+        boolean archived,
+        double rate,
+        LocalDateTime createdDate
+) {
+}
@@ -0,0 +1,148 @@
+package com.moetawol.book.book;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.moetawol.book.exception.ExportRejectedException;
+import com.moetawol.book.history.BookTransactionExport;
+import com.moetawol.book.history.BookTransactionHistoryRepository;
+import com.moetawol.book.security.AuthenticatedUser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports of a user's shelf and of the lending history involving them, as NDJSON or CSV, optionally gzipped.
+ * Rows are read through a forward-only database cursor and written as they arrive, so memory does not grow
+ * with the export. Meant to be called from a {@code StreamingResponseBody}, so the read-only transaction, and with
+ * it the pooled connection, only lasts while the response is being written. At most
+ * application.export.max-concurrent exports run at once, the others are turned away before they start.
+ */
+@Service
+@Slf4j
+public class BookExportService {
+
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
+    private final ObjectWriter jsonWriter;
+    private final CsvMapper csvMapper;
+    private final BookRepository bookRepository;
+    private final BookTransactionHistoryRepository transactionHistoryRepository;
+    // Each running export holds a connection and a streaming thread until the client has read it all
+    private final Semaphore runningExports;
+
+    public BookExportService(
+            ObjectMapper objectMapper,
+            BookRepository bookRepository,
+            BookTransactionHistoryRepository transactionHistoryRepository,
+            @Value("${application.export.max-concurrent:8}") int maxConcurrentExports
+    ) {
+        this.jsonWriter = configure(objectMapper.writer().withRootValueSeparator("\n"));
+        this.csvMapper = CsvMapper.builder()
+                .findAndAddModules()
+                // Columns in declaration order, the CSV default is alphabetical
+                .disable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        this.bookRepository = bookRepository;
+        this.transactionHistoryRepository = transactionHistoryRepository;
+        this.runningExports = new Semaphore(maxConcurrentExports);
+    }
+
+    /**
+     * Admits an export before its response starts, so a rejection is still answered with a 503.
+     * The permit is returned once the body has been written, or has failed.
+     */
+    public StreamingResponseBody admit(StreamingResponseBody body) {
+        if (!runningExports.tryAcquire()) {
+            throw new ExportRejectedException("Too many exports in progress, please retry later");
+        }
+        return out -> {
+            try {
+                body.writeTo(out);
+            } finally {
+                runningExports.release();
+            }
+        };
+    }
+
+    @Transactional(readOnly = true)
+    public void exportBooks(OutputStream out, BookFileFormat format, boolean compressed, Authentication connectedUser) throws IOException {
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
+        UUID ownerId = user.getId();
+        export(out, format, compressed, BookExport.class,
+                List.of(() -> bookRepository.streamExportByOwner(ownerId)));
+    }
+
+    // Books the user borrowed, then the borrowings of their own books; one cursor open at a time
+    @Transactional(readOnly = true)
+    public void exportHistory(OutputStream out, BookFileFormat format, boolean compressed, Authentication connectedUser) throws IOException {
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
+        UUID userId = user.getId();
+        export(out, format, compressed, BookTransactionExport.class, List.of(
+                () -> transactionHistoryRepository.streamBorrowedExport(userId),
+                () -> transactionHistoryRepository.streamLentExport(userId)
+        ));
+    }
+
+    private <T> void export(
+            OutputStream out,
+            BookFileFormat format,
+            boolean compressed,
+            Class<T> type,
+            List<Supplier<Stream<T>>> sources
+    ) throws IOException {
+        final long start = System.nanoTime();
+        GZIPOutputStream gzip = compressed ? new GZIPOutputStream(out, GZIP_BUFFER_SIZE) : null;
+        long rows = 0;
+        try (SequenceWriter writer = writer(format, type).writeValues(gzip != null ? gzip : out)) {
+            for (Supplier<Stream<T>> source : sources) {
+                try (Stream<T> stream = source.get()) {
+                    Iterator<T> iterator = stream.iterator();
+                    while (iterator.hasNext()) {
+                        writer.write(iterator.next());
+                        rows++;
+                    }
+                }
+            }
+        }
+        if (gzip != null) {
+            // Writes the trailer; closing would close the response stream, which the servlet container owns
+            gzip.finish();
+        }
+        log.debug("Exported {} {} rows in {} ms", rows, type.getSimpleName(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private ObjectWriter writer(BookFileFormat format, Class<?> type) {
+        return switch (format) {
+            case NDJSON -> jsonWriter.forType(type);
+            case CSV -> configure(csvMapper.writerFor(type).with(csvMapper.schemaFor(type).withHeader()));
+        };
+    }
+
+    // The generator's buffer is written out whenever it fills up, not after every row
+    private static ObjectWriter configure(ObjectWriter writer) {
+        return writer
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+}
@@ -0,0 +1,28 @@
+package com.moetawol.book.book;
+
+import org.springframework.http.MediaType;
+
+/**
+ * File formats of the bulk import and export: CSV with a header row naming the fields,
+ * or one JSON object per line.
+ */
+public enum BookFileFormat {
+    CSV("text/csv", "csv"),
+    NDJSON(MediaType.APPLICATION_NDJSON_VALUE, "ndjson");
+
+    private final String mediaType;
+    private final String extension;
+
+    BookFileFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType mediaType() {
+        return MediaType.parseMediaType(mediaType);
+    }
+
+    public String extension() {
+        return extension;
+    }
+}
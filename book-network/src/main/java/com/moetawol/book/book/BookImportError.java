@@ -0,0 +1,21 @@
+package com.moetawol.book.book;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Set;
+
+/**
+ * Why one record of an import was rejected. {@code record} is its 1-based position in the body, header excluded;
+ * {@code validationErrors} holds the same codes as a rejected {@code POST /books}.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public record BookImportError(long record, Set<String> validationErrors, String error) {
+
+    static BookImportError invalid(long record, Set<String> validationErrors) {
+        return new BookImportError(record, validationErrors, null);
+    }
+
+    static BookImportError rejected(long record, String error) {
+        return new BookImportError(record, Set.of(), error);
+    }
+}
@@ -0,0 +1,9 @@
+package com.moetawol.book.book;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. Only the first errors are listed, {@code rejected} counts all of them.
+ */
+public record BookImportReport(long imported, long rejected, List<BookImportError> errors) {
+}
@@ -0,0 +1,194 @@
+package com.moetawol.book.book;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.moetawol.book.security.AuthenticatedUser;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Bulk import of books from CSV or NDJSON. The body is parsed one record at a time and each record is
+ * validated like a {@code POST /books}, including the per-owner ISBN uniqueness; valid records are
+ * inserted by {@link BookImportWriter} in batches, each in its own transaction.
+ */
+@Service
+@Slf4j
+public class BookImportService {
+
+    private final ObjectReader jsonReader;
+    private final ObjectReader csvReader;
+    private final Validator validator;
+    private final BookImportWriter importWriter;
+    private final BookRepository bookRepository;
+    private final BookIsbnIndex isbnIndex;
+
+    @Value("${application.import.batch-size:1000}")
+    private int batchSize;
+
+    // Caps the report, a file with a broken column would otherwise list every record
+    @Value("${application.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    public BookImportService(
+            ObjectMapper objectMapper,
+            Validator validator,
+            BookImportWriter importWriter,
+            BookRepository bookRepository,
+            BookIsbnIndex isbnIndex
+    ) {
+        this.jsonReader = objectMapper.readerFor(BookRequest.class);
+        this.csvReader = new CsvMapper()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .readerFor(BookRequest.class)
+                .with(CsvSchema.emptySchema().withHeader());
+        this.validator = validator;
+        this.importWriter = importWriter;
+        this.bookRepository = bookRepository;
+        this.isbnIndex = isbnIndex;
+    }
+
+    public BookImportReport importBooks(InputStream body, BookFileFormat format, Authentication connectedUser) throws IOException {
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
+        Import run = new Import(user.getId());
+        final long start = System.nanoTime();
+        switch (format) {
+            case CSV -> readCsv(body, run);
+            case NDJSON -> readNdjson(body, run);
+        }
+        run.flush();
+        log.info("Imported {} books ({} rejected) in {} ms", run.imported, run.rejected,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return new BookImportReport(run.imported, run.rejected, run.errors);
+    }
+
+    private void readCsv(InputStream body, Import run) throws IOException {
+        try (MappingIterator<BookRequest> records = csvReader.readValues(body)) {
+            long record = 0;
+            while (records.hasNextValue()) {
+                record++;
+                try {
+                    run.accept(record, records.nextValue());
+                } catch (JsonMappingException e) {
+                    // The row was parsed but a value does not fit its field; the next row is still readable
+                    run.reject(BookImportError.rejected(record, e.getOriginalMessage()));
+                }
+            }
+        }
+    }
+
+    // Line by line, so a malformed line only loses that record
+    private void readNdjson(InputStream body, Import run) throws IOException {
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(body, UTF_8))) {
+            long record = 0;
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                record++;
+                try {
+                    run.accept(record, jsonReader.readValue(line));
+                } catch (JsonProcessingException e) {
+                    run.reject(BookImportError.rejected(record, e.getOriginalMessage()));
+                }
+            }
+        }
+    }
+
+    private class Import {
+        private final UUID ownerId;
+        private final List<Pending> batch = new ArrayList<>();
+        // ISBNs of this import, so a file cannot add the same book twice either
+        private final Set<String> isbns = new HashSet<>();
+        private final List<BookImportError> errors = new ArrayList<>();
+        private long imported;
+        private long rejected;
+
+        Import(UUID ownerId) {
+            this.ownerId = ownerId;
+        }
+
+        void accept(long record, BookRequest request) {
+            Set<ConstraintViolation<BookRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                reject(BookImportError.invalid(record, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .collect(Collectors.toSet())));
+                return;
+            }
+            String isbn = Isbn.normalize(request.isbn());
+            if (!isbns.add(isbn)) {
+                reject(BookImportError.rejected(record, "Duplicate ISBN in this import"));
+                return;
+            }
+            batch.add(new Pending(record, request, isbn));
+            if (batch.size() == batchSize) {
+                flush();
+            }
+        }
+
+        void reject(BookImportError error) {
+            rejected++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(error);
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            Set<String> owned = findOwnedIsbns();
+            List<BookRequest> accepted = new ArrayList<>(batch.size());
+            for (Pending pending : batch) {
+                if (owned.contains(pending.isbn())) {
+                    reject(BookImportError.rejected(pending.record(), "You already own a book with this ISBN"));
+                } else {
+                    accepted.add(pending.request());
+                }
+            }
+            if (!accepted.isEmpty()) {
+                importWriter.insert(accepted, ownerId);
+                imported += accepted.size();
+            }
+            batch.forEach(pending -> isbnIndex.add(pending.isbn()));
+            batch.clear();
+        }
+
+        // One query per batch, for the ISBNs the filter cannot rule out
+        private Set<String> findOwnedIsbns() {
+            List<String> candidates = batch.stream()
+                    .map(Pending::isbn)
+                    .filter(isbnIndex::mightContain)
+                    .toList();
+            return candidates.isEmpty() ? Set.of() : bookRepository.findOwnedIsbns(ownerId, candidates);
+        }
+    }
+
+    private record Pending(long record, BookRequest request, String isbn) {
+    }
+}
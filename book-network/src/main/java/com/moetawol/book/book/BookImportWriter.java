@@ -0,0 +1,77 @@
+package com.moetawol.book.book;
+
+import com.moetawol.book.common.TimeOrderedUuidGenerator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Inserts one batch of imported books per transaction as a single JDBC batch, which Connector/J rewrites into
+ * multi-row INSERTs (rewriteBatchedStatements). The books skip the persistence context: no entity copies,
+ * no dirty checking and no flush, so the id, audit columns and normalized ISBN are filled in here.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookImportWriter {
+
+    private static final String INSERT = """
+            INSERT INTO book (id, title, author_name, isbn, isbn_normalized, synopsis, archived, shareable,
+                              owner_id, created_date, created_by)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BookMapper bookMapper;
+    private final AuditorAware<String> auditorAware;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public void insert(List<BookRequest> requests, UUID ownerId) {
+        String createdBy = auditorAware.getCurrentAuditor()
+                .orElseThrow(() -> new IllegalStateException("Imported books need an auditor"));
+        LocalDateTime createdDate = LocalDateTime.now();
+        List<Book> books = requests.stream()
+                .map(request -> {
+                    Book book = bookMapper.toBook(request);
+                    // Imports always create books, an id in the file is ignored
+                    book.setId(TimeOrderedUuidGenerator.next());
+                    book.normalizeIsbn();
+                    return book;
+                })
+                .toList();
+        jdbcTemplate.batchUpdate(INSERT, books, books.size(), (statement, book) -> {
+            statement.setBytes(1, bytes(book.getId()));
+            statement.setString(2, book.getTitle());
+            statement.setString(3, book.getAuthorName());
+            statement.setString(4, book.getIsbn());
+            statement.setString(5, book.getIsbnNormalized());
+            statement.setString(6, book.getSynopsis());
+            statement.setBoolean(7, book.isArchived());
+            statement.setBoolean(8, book.isShareable());
+            statement.setBytes(9, bytes(ownerId));
+            statement.setObject(10, createdDate);
+            statement.setString(11, createdBy);
+        });
+
+        eventPublisher.publishEvent(new BooksImportedEvent(books.stream()
+                .map(book -> new BookSearchDocument(book.getId(), book.getTitle(), book.getAuthorName(), book.getIsbn(),
+                        book.getSynopsis(), ownerId, book.isArchived(), book.isShareable()))
+                .toList()));
+    }
+
+    // Same layout as the binary(16) keys Hibernate writes, see hibernate.type.preferred_uuid_jdbc_type
+    private static byte[] bytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+}
@@ -0,0 +1,180 @@
+package com.moetawol.book.book;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Base of the in-memory book indexes: a state of type {@code S} built from documents of type {@code D}.
+ * A rebuild fills a fresh state from keyset batches without holding the lock, then swaps it in; committed changes,
+ * delivered by {@link BookIndexUpdater}, are applied to the current state and to a rebuild in progress alike.
+ */
+@Slf4j
+public abstract class BookIndex<S, D> {
+
+    private final String name;
+    private final BookKeysetLoader loader;
+    private final BiFunction<UUID, Pageable, List<D>> batchQuery;
+    private final Function<D, UUID> id;
+    private final Supplier<S> emptyState;
+
+    protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Guarded by the lock
+    protected S state;
+    // Books changed while a rebuild runs, with the document loaded after their commit (empty once gone), re-applied
+    // to the rebuilt state so the swap needs no query under the write lock; null when no rebuild is running
+    private Map<UUID, Optional<D>> changedDuringRebuild;
+    // Only touched by the rebuilding thread until the swap
+    private S rebuilding;
+    private long rebuildStart;
+
+    protected BookIndex(
+            String name,
+            BookKeysetLoader loader,
+            BiFunction<UUID, Pageable, List<D>> batchQuery,
+            Function<D, UUID> id,
+            Supplier<S> emptyState
+    ) {
+        this.name = name;
+        this.loader = loader;
+        this.batchQuery = batchQuery;
+        this.id = id;
+        this.emptyState = emptyState;
+        this.state = emptyState.get();
+    }
+
+    protected abstract void add(S state, D document);
+
+    protected abstract void remove(S state, UUID bookId);
+
+    // Reported once a rebuild is swapped in
+    protected abstract int size(S state);
+
+    protected void addAll(S state, List<D> documents) {
+        documents.forEach(document -> add(state, document));
+    }
+
+    /**
+     * Applies a committed change; {@code document} is empty when the book no longer exists.
+     * Load the document before calling, the change is applied under the write lock.
+     */
+    public void apply(UUID bookId, Optional<D> document) {
+        lock.writeLock().lock();
+        try {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(bookId, document);
+            }
+            remove(state, bookId);
+            document.ifPresent(present -> add(state, present));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void applyAll(List<D> documents) {
+        lock.writeLock().lock();
+        try {
+            for (D document : documents) {
+                if (changedDuringRebuild != null) {
+                    changedDuringRebuild.put(id.apply(document), Optional.of(document));
+                }
+                add(state, document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Builds a fresh state from the database and swaps it in; readers keep using the old one meanwhile.
+     */
+    public void rebuild() {
+        rebuild(loader, batchQuery, id, List.of(this));
+    }
+
+    /**
+     * Rebuilds indexes over the same documents from a single scan of the table.
+     */
+    static <D> void rebuild(
+            BookKeysetLoader loader,
+            BiFunction<UUID, Pageable, List<D>> batchQuery,
+            Function<D, UUID> id,
+            List<? extends BookIndex<?, D>> indexes
+    ) {
+        List<BookIndex<?, D>> started = new ArrayList<>();
+        for (BookIndex<?, D> index : indexes) {
+            if (index.beginRebuild()) {
+                started.add(index);
+            }
+        }
+        if (started.isEmpty()) {
+            return;
+        }
+        try {
+            loader.forEachBatch(batchQuery, id, batch -> started.forEach(index -> index.addToRebuild(batch)));
+        } catch (RuntimeException e) {
+            started.forEach(BookIndex::abortRebuild);
+            throw e;
+        }
+        started.forEach(BookIndex::finishRebuild);
+    }
+
+    private boolean beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            if (changedDuringRebuild != null) {
+                log.warn("{} rebuild already running", name);
+                return false;
+            }
+            changedDuringRebuild = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        rebuildStart = System.nanoTime();
+        rebuilding = emptyState.get();
+        return true;
+    }
+
+    private void addToRebuild(List<D> batch) {
+        addAll(rebuilding, batch);
+    }
+
+    private void finishRebuild() {
+        S rebuilt = rebuilding;
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild.forEach((bookId, document) -> {
+                remove(rebuilt, bookId);
+                document.ifPresent(present -> add(rebuilt, present));
+            });
+            state = rebuilt;
+            changedDuringRebuild = null;
+            rebuilding = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("{} rebuilt with {} entries in {} ms",
+                name, size(rebuilt), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - rebuildStart));
+    }
+
+    private void abortRebuild() {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = null;
+            rebuilding = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
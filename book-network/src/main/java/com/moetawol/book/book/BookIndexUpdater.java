@@ -0,0 +1,68 @@
+package com.moetawol.book.book;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Builds the in-memory book indexes at startup and applies committed book changes to them.
+ * Each changed book is read once per projection, before any index lock is taken.
+ * Changes to the same book are read and applied one at a time: two commits racing on a book would otherwise let
+ * the older snapshot be applied last, and stay there.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookIndexUpdater implements ApplicationRunner {
+
+    private final BookRepository bookRepository;
+    private final BookKeysetLoader loader;
+    private final BookSearchIndex searchIndex;
+    private final BookAuthorIndex authorIndex;
+    private final BookSuggestionIndex suggestionIndex;
+
+    // Striped by book id; the read that runs last follows every commit so far, and is also applied last
+    private final ReentrantLock[] bookLocks = newLocks(64);
+
+    // The search and author indexes are built from the same documents, so one scan of the table feeds both
+    @Override
+    public void run(ApplicationArguments args) {
+        BookIndex.rebuild(loader, bookRepository::findSearchDocumentsAfter, BookSearchDocument::id,
+                List.of(searchIndex, authorIndex));
+        suggestionIndex.rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        ReentrantLock bookLock = bookLocks[Math.floorMod(event.bookId().hashCode(), bookLocks.length)];
+        bookLock.lock();
+        try {
+            Optional<BookSearchDocument> document = bookRepository.findSearchDocument(event.bookId());
+            searchIndex.apply(event.bookId(), document);
+            authorIndex.apply(event.bookId(), document);
+            suggestionIndex.apply(event.bookId(), bookRepository.findSuggestionSource(event.bookId()));
+        } finally {
+            bookLock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event) {
+        searchIndex.applyAll(event.books());
+        authorIndex.applyAll(event.books());
+        suggestionIndex.applyAll(event.books().stream().map(BookSuggestionSource::imported).toList());
+    }
+
+    private static ReentrantLock[] newLocks(int stripes) {
+        ReentrantLock[] locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+}
@@ -0,0 +1,9 @@
+package com.moetawol.book.book;
+
+import java.util.UUID;
+
+/**
+ * The ISBN columns of a book, as read by the startup load of {@link BookIsbnIndex}.
+ */
+public record BookIsbn(UUID id, String isbn, String isbnNormalized) {
+}
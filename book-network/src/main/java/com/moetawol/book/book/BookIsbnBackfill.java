@@ -0,0 +1,39 @@
+package com.moetawol.book.book;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Fills {@link Book#getIsbnNormalized()} for books saved before the column existed, one transaction per batch.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookIsbnBackfill {
+
+    private final BookRepository bookRepository;
+
+    /**
+     * Reads the next batch after {@code after} and stores the canonical ISBN of the rows that lack it.
+     */
+    @Transactional
+    public List<BookIsbn> normalizeBatch(UUID after, int size) {
+        return bookRepository.findIsbnsAfter(after, PageRequest.of(0, size)).stream()
+                .map(this::normalize)
+                .toList();
+    }
+
+    private BookIsbn normalize(BookIsbn book) {
+        String normalized = Isbn.normalize(book.isbn());
+        if (Objects.equals(normalized, book.isbnNormalized())) {
+            return book;
+        }
+        bookRepository.updateIsbnNormalized(book.id(), normalized);
+        return new BookIsbn(book.id(), book.isbn(), normalized);
+    }
+}
@@ -0,0 +1,151 @@
+package com.moetawol.book.book;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over the canonical ISBN of every book, in front of the {@code idx_book_isbn} lookups.
+ * A negative answer is definite, so saving or looking up an ISBN nobody has skips the database;
+ * a positive one may be false and is confirmed with an indexed query.
+ * Books are only ever added, a deleted book just leaves a false positive behind.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BookIsbnIndex implements ApplicationRunner {
+
+    private final BookRepository bookRepository;
+    private final BookIsbnBackfill isbnBackfill;
+    private final BookKeysetLoader loader;
+
+    @Value("${application.isbn.expected-books:1000000}")
+    private long expectedBooks;
+    @Value("${application.isbn.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    // Null until loaded, every ISBN might then exist
+    private volatile BloomFilter filter;
+    // ISBNs saved before the filter was swapped in; the startup scan may have read past their rows already
+    private final Set<String> addedWhileLoading = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void run(ApplicationArguments args) {
+        final long start = System.nanoTime();
+        // Room for the books to double before the false positive rate degrades
+        BloomFilter loaded = BloomFilter.create(Math.max(expectedBooks, 2 * bookRepository.count()), falsePositiveRate);
+        loader.forEachBatch(
+                (after, page) -> isbnBackfill.normalizeBatch(after, page.getPageSize()),
+                BookIsbn::id,
+                batch -> batch.forEach(book -> loaded.put(book.isbnNormalized()))
+        );
+        filter = loaded;
+        addedWhileLoading.forEach(loaded::put);
+        log.info("ISBN index loaded in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * False means no book has this canonical ISBN; true means one probably does.
+     */
+    public boolean mightContain(String isbnNormalized) {
+        BloomFilter current = filter;
+        return isbnNormalized != null && (current == null || current.mightContain(isbnNormalized));
+    }
+
+    /**
+     * Records a saved ISBN. Called before commit: a rolled back save only costs a false positive.
+     */
+    public void add(String isbnNormalized) {
+        if (isbnNormalized == null) {
+            return;
+        }
+        BloomFilter current = filter;
+        if (current == null) {
+            addedWhileLoading.add(isbnNormalized);
+            // The filter may have been swapped in after the replay read the set
+            current = filter;
+        }
+        if (current != null) {
+            current.put(isbnNormalized);
+        }
+    }
+
+    // Lock-free: bits are only ever set, with a CAS per word
+    static final class BloomFilter {
+        private final AtomicLongArray words;
+        private final long bits;
+        private final int hashes;
+
+        private BloomFilter(long bits, int hashes) {
+            this.words = new AtomicLongArray((int) ((bits + 63) / 64));
+            this.bits = words.length() * 64L;
+            this.hashes = hashes;
+        }
+
+        static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+            long n = Math.max(expectedInsertions, 1);
+            // Optimal sizing: m = -n ln p / (ln 2)^2 bits and k = m / n ln 2 hash functions
+            long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+            return new BloomFilter(bits, hashes);
+        }
+
+        void put(String value) {
+            if (value == null) {
+                return;
+            }
+            long hash1 = hash(value);
+            long hash2 = mix(hash1) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bits);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current = words.get(word);
+                while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                    current = words.get(word);
+                }
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash1 = hash(value);
+            long hash2 = mix(hash1) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bits);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // 64-bit FNV-1a, then mixed so that nearby ISBNs spread over the whole filter
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b;
+                hash *= 0x100000001b3L;
+            }
+            return mix(hash);
+        }
+
+        // MurmurHash3 finalizer
+        private static long mix(long value) {
+            value ^= value >>> 33;
+            value *= 0xff51afd7ed558ccdL;
+            value ^= value >>> 33;
+            value *= 0xc4ceb93fe53a87cdL;
+            value ^= value >>> 33;
+            return value;
+        }
+    }
+}
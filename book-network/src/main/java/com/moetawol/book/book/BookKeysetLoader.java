@@ -0,0 +1,47 @@
+package com.moetawol.book.book;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Reads a whole table in id order, one batch per query, for the in-memory indexes.
+ * Each query seeks past the last id of the previous batch, so no batch costs more than the first.
+ */
+@Component
+public class BookKeysetLoader {
+
+    private static final UUID FIRST_ID = new UUID(0L, 0L);
+
+    @Value("${application.search.rebuild-batch-size:5000}")
+    private int batchSize;
+
+    /**
+     * Passes every row returned by {@code query(afterId, page)}, in batches, to {@code consumer}; returns the row count.
+     */
+    public <T> long forEachBatch(
+            BiFunction<UUID, Pageable, List<T>> query,
+            Function<T, UUID> id,
+            Consumer<List<T>> consumer
+    ) {
+        long rows = 0;
+        UUID after = FIRST_ID;
+        List<T> batch;
+        do {
+            batch = query.apply(after, PageRequest.of(0, batchSize));
+            if (!batch.isEmpty()) {
+                consumer.accept(batch);
+                after = id.apply(batch.get(batch.size() - 1));
+                rows += batch.size();
+            }
+        } while (batch.size() == batchSize);
+        return rows;
+    }
+}
@@ -1,12 +1,19 @@
 package com.moetawol.book.book;
 
-//import com.moetawol.book.file.FileUtils;
-import com.moetawol.book.file.FileUtils;
+import com.moetawol.book.file.CoverCache;
 import com.moetawol.book.history.BookTransactionHistory;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 @Service
+@RequiredArgsConstructor
 public class BookMapper {
+
+    private final CoverCache coverCache;
+
+    // Relative to the API base path, served by BookController#findBookCover
+    public static final String COVER_PATH = "/books/cover/";
+
     public Book toBook(BookRequest request) {
         return Book.builder()
                 .id(request.id())
@@ -20,6 +27,10 @@ public class BookMapper {
     }
 
     public BookResponse toBookResponse(Book book) {
+        return toBookResponse(book, false);
+    }
+
+    public BookResponse toBookResponse(Book book, boolean inlineCover) {
         return BookResponse.builder()
                 .id(book.getId())
                 .title(book.getTitle())
@@ -30,7 +41,10 @@ public class BookMapper {
                 .archived(book.isArchived())
                 .shareable(book.isShareable())
                  .owner(book.getOwner().fullName())
-                .cover(FileUtils.readFileFromLocation(book.getBookCover()))
+                .coverUrl(toCoverUrl(book))
+                .coverHash(book.getBookCoverHash())
+                .coverSize(book.getBookCoverSize())
+                .cover(inlineCover ? coverCache.getBytes(book.getBookCover(), book.getBookCoverHash()) : null)
                 .build();
     }
 
@@ -45,4 +59,14 @@ public class BookMapper {
                 .returnApproved(history.isReturnApproved())
                 .build();
     }
+
+    private String toCoverUrl(Book book) {
+        if (book.getBookCover() == null) {
+            return null;
+        }
+        // The hash acts as a version so clients and proxies can cache the cover aggressively
+        return book.getBookCoverHash() == null
+                ? COVER_PATH + book.getId()
+                : COVER_PATH + book.getId() + "?v=" + book.getBookCoverHash();
+    }
 }
@@ -0,0 +1,58 @@
+package com.moetawol.book.book;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+/**
+ * Maintains the rating aggregate stored on {@link Book}.
+ * New feedbacks update it incrementally; the backfill and repair jobs recompute it from the feedback table.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BookRatingService implements ApplicationRunner {
+
+    private final BookRepository bookRepository;
+    private final BookResponseCache responseCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // One-off backfill for books created before the aggregate columns existed
+    @Value("${application.rating.backfill-on-startup:false}")
+    private boolean backfillOnStartup;
+
+    @Transactional
+    public void addRating(UUID bookId, double note) {
+        bookRepository.addRating(bookId, note);
+        eventPublisher.publishEvent(new BookChangedEvent(bookId));
+    }
+
+    @Override
+    @Transactional
+    public void run(ApplicationArguments args) {
+        if (backfillOnStartup) {
+            int updated = bookRepository.recomputeAllRatings();
+            log.info("Rating backfill recomputed {} books", updated);
+            responseCache.invalidateAll();
+        }
+    }
+
+    // Fixes books whose aggregate drifted from their feedbacks (e.g. rows written outside FeedbackService)
+    @Scheduled(cron = "${application.rating.repair-cron:0 0 3 * * *}")
+    @Transactional
+    public void repairInconsistentRatings() {
+        int repaired = bookRepository.repairInconsistentRatings();
+        if (repaired > 0) {
+            log.warn("Rating repair fixed {} books", repaired);
+            responseCache.invalidateAll();
+        }
+    }
+}
@@ -1,20 +1,275 @@
 package com.moetawol.book.book;
 
-import org.springframework.data.domain.Page;
+import com.moetawol.book.common.VersionStamp;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface BookRepository extends JpaRepository<Book, UUID>, JpaSpecificationExecutor<Book> {
+    @EntityGraph(attributePaths = "owner")
     @Query("""
             SELECT book
             FROM Book book
             WHERE book.archived = false
             AND book.shareable = true
-            AND book.createdBy != :userId
+            AND book.owner.id != :userId
             """)
-    Page<Book> findAllDisplayableBooks(Pageable pageable, UUID userId);
+    Slice<Book> findAllDisplayableBooks(Pageable pageable, UUID userId);
+
+    @Query("""
+            SELECT COUNT(book)
+            FROM Book book
+            WHERE book.archived = false
+            AND book.shareable = true
+            AND book.owner.id != :userId
+            """)
+    long countAllDisplayableBooks(UUID userId);
+
+    // Estimated totals share this count and subtract countDisplayableBooksByOwner, see BookService#findAllBooks
+    @Query("""
+            SELECT COUNT(book)
+            FROM Book book
+            WHERE book.archived = false
+            AND book.shareable = true
+            AND book.owner.id IS NOT NULL
+            """)
+    long countDisplayableBooks();
+
+    @Query("""
+            SELECT COUNT(book)
+            FROM Book book
+            WHERE book.owner.id = :ownerId
+            AND book.archived = false
+            AND book.shareable = true
+            """)
+    long countDisplayableBooksByOwner(UUID ownerId);
+
+    @EntityGraph(attributePaths = "owner")
+    @Query("""
+            SELECT book
+            FROM Book book
+            WHERE book.archived = false
+            AND book.shareable = true
+            AND book.owner.id != :userId
+            AND (book.createdDate < :createdDate
+                OR (book.createdDate = :createdDate AND book.id < :id))
+            ORDER BY book.createdDate DESC, book.id DESC
+            """)
+    List<Book> findAllDisplayableBooksAfter(UUID userId, LocalDateTime createdDate, UUID id, Pageable limit);
+
+    @EntityGraph(attributePaths = "owner")
+    @Query("""
+            SELECT book
+            FROM Book book
+            WHERE book.owner.id = :ownerId
+            AND (book.createdDate < :createdDate
+                OR (book.createdDate = :createdDate AND book.id < :id))
+            ORDER BY book.createdDate DESC, book.id DESC
+            """)
+    List<Book> findAllByOwnerAfter(UUID ownerId, LocalDateTime createdDate, UUID id, Pageable limit);
+
+    // Read through a forward-only cursor by BookExportService; the fetch size bounds the rows buffered by the driver
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+            SELECT new com.moetawol.book.book.BookExport(
+                book.id, book.title, book.authorName, book.isbn, book.synopsis,
+                book.shareable, book.archived, book.rate, book.createdDate)
+            FROM Book book
+            WHERE book.owner.id = :ownerId
+            ORDER BY book.createdDate DESC, book.id DESC
+            """)
+    Stream<BookExport> streamExportByOwner(UUID ownerId);
+
+    @EntityGraph(attributePaths = "owner")
+    @Query("""
+            SELECT book
+            FROM Book book
+            WHERE book.owner.id = :ownerId
+            """)
+    Slice<Book> findAllByOwner(Pageable pageable, UUID ownerId);
+
+    long countByOwnerId(UUID ownerId);
+
+    @Query("""
+            SELECT new com.moetawol.book.common.VersionStamp(COUNT(book), MAX(book.createdDate), MAX(book.lastModifiedDate))
+            FROM Book book
+            WHERE book.owner.id = :ownerId
+            """)
+    VersionStamp findOwnerBooksVersion(UUID ownerId);
+
+    @Query("""
+            SELECT COALESCE(book.lastModifiedDate, book.createdDate)
+            FROM Book book
+            WHERE book.id = :bookId
+            """)
+    Optional<LocalDateTime> findLastModifiedDate(UUID bookId);
+
+    // The average is assigned first so it is computed from the previous sum and count on every database
+    @Modifying
+    @Query("""
+            UPDATE Book book
+            SET book.rate = ROUND((book.rateSum + :note) / (book.rateCount + 1), 1),
+                book.rateSum = book.rateSum + :note,
+                book.rateCount = book.rateCount + 1,
+                book.lastModifiedDate = LOCAL DATETIME
+            WHERE book.id = :bookId
+            """)
+    int addRating(@Param("bookId") UUID bookId, @Param("note") double note);
+
+    @Modifying
+    @Query("""
+            UPDATE Book book
+            SET book.rate = COALESCE(ROUND((SELECT AVG(feedback.note) FROM Feedback feedback WHERE feedback.book = book), 1), 0),
+                book.rateSum = COALESCE((SELECT SUM(feedback.note) FROM Feedback feedback WHERE feedback.book = book), 0),
+                book.rateCount = (SELECT COUNT(feedback) FROM Feedback feedback WHERE feedback.book = book),
+                book.lastModifiedDate = LOCAL DATETIME
+            """)
+    int recomputeAllRatings();
+
+    @Modifying
+    @Query("""
+            UPDATE Book book
+            SET book.rate = COALESCE(ROUND((SELECT AVG(feedback.note) FROM Feedback feedback WHERE feedback.book = book), 1), 0),
+                book.rateSum = COALESCE((SELECT SUM(feedback.note) FROM Feedback feedback WHERE feedback.book = book), 0),
+                book.rateCount = (SELECT COUNT(feedback) FROM Feedback feedback WHERE feedback.book = book),
+                book.lastModifiedDate = LOCAL DATETIME
+            WHERE book.rateCount <> (SELECT COUNT(feedback) FROM Feedback feedback WHERE feedback.book = book)
+            """)
+    int repairInconsistentRatings();
+
+    // Single conditional UPDATE: of several concurrent borrowers only one sees an updated row
+    @Modifying
+    @Query("""
+            UPDATE Book book
+            SET book.borrowerId = :userId
+            WHERE book.id = :bookId
+            AND book.borrowerId IS NULL
+            AND book.archived = false
+            AND book.shareable = true
+            AND book.owner.id <> :userId
+            """)
+    int claimForBorrowing(@Param("bookId") UUID bookId, @Param("userId") UUID userId);
+
+    // Fills borrowerId for loans recorded before the column existed
+    @Modifying
+    @Query("""
+            UPDATE Book book
+            SET book.borrowerId = (
+                SELECT MAX(history.user.id)
+                FROM BookTransactionHistory history
+                WHERE history.book = book
+                AND history.returnApproved = false
+            )
+            WHERE book.borrowerId IS NULL
+            """)
+    int backfillBorrowers();
+
+    @EntityGraph(attributePaths = "owner")
+    List<Book> findAllByIdIn(Collection<UUID> ids);
+
+    @Query("""
+            SELECT new com.moetawol.book.book.BookSearchDocument(
+                book.id, book.title, book.authorName, book.isbn, book.synopsis, book.owner.id, book.archived, book.shareable)
+            FROM Book book
+            WHERE book.id = :bookId
+            """)
+    Optional<BookSearchDocument> findSearchDocument(UUID bookId);
+
+    // Keyset over the primary key so the startup rebuild never holds more than one batch in memory
+    @Query("""
+            SELECT new com.moetawol.book.book.BookSearchDocument(
+                book.id, book.title, book.authorName, book.isbn, book.synopsis, book.owner.id, book.archived, book.shareable)
+            FROM Book book
+            WHERE book.id > :after
+            ORDER BY book.id
+            """)
+    List<BookSearchDocument> findSearchDocumentsAfter(UUID after, Pageable limit);
+
+    // Copies with the same canonical ISBN the user may see: displayable ones and their own
+    @EntityGraph(attributePaths = "owner")
+    @Query("""
+            SELECT book
+            FROM Book book
+            WHERE book.isbnNormalized = :isbn
+            AND ((book.archived = false AND book.shareable = true) OR book.owner.id = :userId)
+            ORDER BY book.createdDate DESC, book.id DESC
+            """)
+    List<Book> findAllByIsbn(String isbn, UUID userId, Pageable pageable);
+
+    @Query("""
+            SELECT COUNT(book)
+            FROM Book book
+            WHERE book.isbnNormalized = :isbn
+            AND ((book.archived = false AND book.shareable = true) OR book.owner.id = :userId)
+            """)
+    long countAllByIsbn(String isbn, UUID userId);
+
+    // bookId is the book being updated, null when creating one
+    @Query("""
+            SELECT COUNT(book) > 0
+            FROM Book book
+            WHERE book.isbnNormalized = :isbn
+            AND book.owner.id = :ownerId
+            AND (:bookId IS NULL OR book.id <> :bookId)
+            """)
+    boolean existsByOwnerAndIsbn(UUID ownerId, String isbn, UUID bookId);
+
+    @Query("""
+            SELECT book.isbnNormalized
+            FROM Book book
+            WHERE book.owner.id = :ownerId
+            AND book.isbnNormalized IN :isbns
+            """)
+    Set<String> findOwnedIsbns(UUID ownerId, Collection<String> isbns);
+
+    @Query("""
+            SELECT new com.moetawol.book.book.BookIsbn(book.id, book.isbn, book.isbnNormalized)
+            FROM Book book
+            WHERE book.id > :after
+            ORDER BY book.id
+            """)
+    List<BookIsbn> findIsbnsAfter(UUID after, Pageable limit);
+
+    @Modifying
+    @Query("""
+            UPDATE Book book
+            SET book.isbnNormalized = :isbnNormalized
+            WHERE book.id = :bookId
+            """)
+    int updateIsbnNormalized(UUID bookId, String isbnNormalized);
+
+    @Query("""
+            SELECT new com.moetawol.book.book.BookSuggestionSource(
+                book.id, book.title, book.authorName, book.archived, book.shareable,
+                (SELECT COUNT(history) FROM BookTransactionHistory history WHERE history.book = book))
+            FROM Book book
+            WHERE book.id = :bookId
+            """)
+    Optional<BookSuggestionSource> findSuggestionSource(UUID bookId);
+
+    @Query("""
+            SELECT new com.moetawol.book.book.BookSuggestionSource(
+                book.id, book.title, book.authorName, book.archived, book.shareable,
+                (SELECT COUNT(history) FROM BookTransactionHistory history WHERE history.book = book))
+            FROM Book book
+            WHERE book.id > :after
+            ORDER BY book.id
+            """)
+    List<BookSuggestionSource> findSuggestionSourcesAfter(UUID after, Pageable limit);
 }
@@ -1,5 +1,6 @@
 package com.moetawol.book.book;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -12,7 +13,7 @@ import java.util.UUID;
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class BookResponse {
 
     private UUID id;
@@ -21,6 +22,11 @@ public class BookResponse {
     private String isbn;
     private String synopsis;
     private String owner;
+    private String coverUrl;
+    private String coverHash;
+    private Long coverSize;
+    // Only filled when the client explicitly asks for inline covers (inlineCover=true)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private byte[] cover;
     private double rate;
     private boolean archived;
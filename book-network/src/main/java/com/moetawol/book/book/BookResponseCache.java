@@ -0,0 +1,195 @@
+package com.moetawol.book.book;
+
+import com.moetawol.book.file.CoverCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read-through cache of mapped {@link BookResponse}s keyed by book id, bounded in size and age.
+ * Entries are dropped on every {@link BookChangedEvent} once its transaction has committed;
+ * the TTL only bounds how stale a row changed outside the application can get.
+ * Cached responses are shared between requests and must not be modified.
+ * A hit runs outside any transaction and takes no connection; only a miss opens a read-only one to load the book.
+ */
+@Service
+public class BookResponseCache {
+
+    private final BookRepository bookRepository;
+    private final BookMapper bookMapper;
+    private final CoverCache coverCache;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Value("${application.book.response-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${application.book.response-cache.ttl:PT10M}")
+    private Duration ttl;
+
+    @Value("${application.book.response-cache.max-size:10000}")
+    private int maxSize;
+
+    // Access-ordered so the least recently read books are evicted first
+    private final LinkedHashMap<UUID, CachedBook> books = new LinkedHashMap<>(256, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    // Bumped on every invalidation; a load that overlapped one is returned but not cached
+    private final AtomicLong version = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BookResponseCache(
+            BookRepository bookRepository,
+            BookMapper bookMapper,
+            CoverCache coverCache,
+            MeterRegistry meterRegistry,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.bookRepository = bookRepository;
+        this.bookMapper = bookMapper;
+        this.coverCache = coverCache;
+        this.meterRegistry = meterRegistry;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        FunctionCounter.builder("book.response.cache.hits", hits, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("book.response.cache.misses", misses, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("book.response.cache.evictions", evictions, LongAdder::sum).register(meterRegistry);
+        Gauge.builder("book.response.cache.size", this, BookResponseCache::size).register(meterRegistry);
+    }
+
+    public BookResponse findById(UUID bookId, boolean inlineCover) {
+        CachedBook cached = enabled ? get(bookId) : null;
+        if (cached == null) {
+            cached = load(bookId);
+        }
+        if (!inlineCover || cached.coverPath() == null) {
+            return cached.response();
+        }
+        // Inline covers come from the cover cache and are never kept here
+        return cached.response().toBuilder()
+                .cover(coverCache.getBytes(cached.coverPath(), cached.response().getCoverHash()))
+                .build();
+    }
+
+    /**
+     * Last modification of the book, for its ETag: from the cached entry when there is one, else a primary key lookup.
+     */
+    public LocalDateTime findLastModified(UUID bookId) {
+        if (enabled) {
+            lock.lock();
+            try {
+                CachedBook cached = books.get(bookId);
+                if (cached != null && cached.loadedAt().plus(ttl).isAfter(Instant.now())) {
+                    return cached.lastModified();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return bookRepository.findLastModifiedDate(bookId)
+                .orElseThrow(() -> new EntityNotFoundException("No book found with ID:: " + bookId));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        invalidate(event.bookId());
+    }
+
+    public void invalidate(UUID bookId) {
+        lock.lock();
+        try {
+            version.incrementAndGet();
+            books.remove(bookId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            version.incrementAndGet();
+            books.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int size() {
+        lock.lock();
+        try {
+            return books.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private CachedBook get(UUID bookId) {
+        lock.lock();
+        try {
+            CachedBook cached = books.get(bookId);
+            if (cached != null && cached.loadedAt().plus(ttl).isAfter(Instant.now())) {
+                hits.increment();
+                return cached;
+            }
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        return null;
+    }
+
+    private CachedBook load(UUID bookId) {
+        long loadedVersion = version.get();
+        // The mapper reads the lazy owner, so the book is mapped before the transaction ends
+        CachedBook loaded = readOnlyTransaction.execute(status -> bookRepository.findById(bookId)
+                .map(book -> new CachedBook(bookMapper.toBookResponse(book), book.getBookCover(), lastModified(book), Instant.now()))
+                .orElseThrow(() -> new EntityNotFoundException("No book found with ID:: " + bookId)));
+        if (enabled) {
+            lock.lock();
+            try {
+                if (version.get() == loadedVersion) {
+                    books.put(bookId, loaded);
+                    var iterator = books.values().iterator();
+                    while (books.size() > maxSize && iterator.hasNext()) {
+                        iterator.next();
+                        iterator.remove();
+                        evictions.increment();
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return loaded;
+    }
+
+    private static LocalDateTime lastModified(Book book) {
+        return book.getLastModifiedDate() != null ? book.getLastModifiedDate() : book.getCreatedDate();
+    }
+
+    private record CachedBook(BookResponse response, String coverPath, LocalDateTime lastModified, Instant loadedAt) {
+    }
+}
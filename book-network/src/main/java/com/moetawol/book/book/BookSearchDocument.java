@@ -0,0 +1,24 @@
+package com.moetawol.book.book;
+
+import java.util.UUID;
+
+/**
+ * The searchable fields of a book and the flags that decide who may see it.
+ */
+public record BookSearchDocument(
+        UUID id,
+        String title,
+        String authorName,
+        String isbn,
+        String synopsis,
+        UUID ownerId,
+        boolean archived,
+        boolean shareable
+) {
+
+    // Same rule as BookRepository#findAllDisplayableBooks
+    public boolean isVisibleTo(UUID userId) {
+        // Books without an owner are never listed, as the != comparison on a null owner_id is not true in SQL
+        return !archived && shareable && ownerId != null && !userId.equals(ownerId);
+    }
+}
@@ -0,0 +1,254 @@
+package com.moetawol.book.book;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over the title, author, ISBN and synopsis of every book, ranked with BM25.
+ * Rebuilt at startup with tokenization spread over all cores, then kept up to date by {@link BookIndexUpdater}.
+ */
+@Service
+public class BookSearchIndex extends BookIndex<BookSearchIndex.Segment, BookSearchDocument> {
+
+    // Standard BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // A match in the title or author counts more than one in the synopsis
+    private static final int TITLE_WEIGHT = 3;
+    private static final int AUTHOR_WEIGHT = 2;
+    private static final int ISBN_WEIGHT = 2;
+    private static final int SYNOPSIS_WEIGHT = 1;
+
+    // Deep pages need a heap as large as the offset, so they are not ranked past this point
+    public static final int MAX_RESULT_WINDOW = 10_000;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    public BookSearchIndex(BookRepository bookRepository, BookKeysetLoader loader) {
+        super("Search index", loader, bookRepository::findSearchDocumentsAfter, BookSearchDocument::id, Segment::new);
+    }
+
+    public record SearchHits(List<UUID> bookIds, long total) {
+    }
+
+    /**
+     * Ranks the books visible to {@code userId} that match at least one term of the query.
+     */
+    public SearchHits search(String query, UUID userId, int page, int size) {
+        List<String> terms = queryTerms(query);
+        int window = (page + 1) * size;
+        if (terms.isEmpty() || window > MAX_RESULT_WINDOW) {
+            return new SearchHits(List.of(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            Segment current = state;
+            float[] scores = new float[current.documents.size()];
+            BitSet matched = new BitSet(scores.length);
+            double averageLength = current.liveDocuments == 0 ? 1 : (double) current.totalLength / current.liveDocuments;
+
+            for (String term : terms) {
+                Postings postings = current.postings.get(term);
+                if (postings == null || postings.liveDocuments == 0) {
+                    continue;
+                }
+                // Only live books count: the postings of removed or replaced ones stay until compaction
+                double idf = Math.log(1 + (current.liveDocuments - postings.liveDocuments + 0.5) / (postings.liveDocuments + 0.5));
+                for (int i = 0; i < postings.size; i++) {
+                    int doc = postings.docs[i];
+                    IndexedBook book = current.documents.get(doc);
+                    if (book == null || !book.document().isVisibleTo(userId)) {
+                        continue;
+                    }
+                    double frequency = postings.frequencies[i];
+                    double norm = K1 * (1 - B + B * book.length() / averageLength);
+                    scores[doc] += (float) (idf * frequency * (K1 + 1) / (frequency + norm));
+                    matched.set(doc);
+                }
+            }
+
+            // Min-heap holding the best `window` documents seen so far
+            Comparator<Integer> byScore = Comparator.comparingDouble(doc -> scores[doc]);
+            PriorityQueue<Integer> top = new PriorityQueue<>(window + 1, byScore);
+            for (int doc = matched.nextSetBit(0); doc >= 0; doc = matched.nextSetBit(doc + 1)) {
+                top.offer(doc);
+                if (top.size() > window) {
+                    top.poll();
+                }
+            }
+
+            List<Integer> ranked = new ArrayList<>(top);
+            ranked.sort(byScore.reversed());
+            List<UUID> bookIds = ranked.stream()
+                    .skip((long) page * size)
+                    .map(doc -> current.documents.get(doc).document().id())
+                    .toList();
+            return new SearchHits(bookIds, matched.cardinality());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected void add(Segment segment, BookSearchDocument document) {
+        segment.add(IndexedTerms.of(document));
+    }
+
+    // Tokenizing is the expensive part, spread it over all cores
+    @Override
+    protected void addAll(Segment segment, List<BookSearchDocument> documents) {
+        documents.parallelStream()
+                .map(IndexedTerms::of)
+                .toList()
+                .forEach(segment::add);
+    }
+
+    @Override
+    protected void remove(Segment segment, UUID bookId) {
+        segment.remove(bookId);
+    }
+
+    @Override
+    protected int size(Segment segment) {
+        return segment.liveDocuments;
+    }
+
+    // Updated books leave their old postings behind, which searches still walk and score arrays still cover;
+    // rebuild once they make up a quarter of the index, however small
+    @Scheduled(fixedDelayString = "${application.search.compaction-interval:PT10M}")
+    public void compactIfNeeded() {
+        boolean needed;
+        lock.readLock().lock();
+        try {
+            needed = state.removedDocuments > 0 && state.removedDocuments >= state.liveDocuments / 4;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (needed) {
+            rebuild();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        return Arrays.stream(SEPARATORS.split(normalized))
+                .filter(token -> !token.isEmpty())
+                .toList();
+    }
+
+    // ISBNs are matched with or without their hyphens
+    private static String compactIsbn(String text) {
+        return text == null ? "" : text.replaceAll("[\\s-]", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> queryTerms(String query) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        String compact = compactIsbn(query);
+        if (compact.length() >= 10 && compact.chars().allMatch(Character::isLetterOrDigit)) {
+            terms.add(compact);
+        }
+        return List.copyOf(terms);
+    }
+
+    private record IndexedTerms(BookSearchDocument document, Map<String, Integer> frequencies, int length) {
+
+        static IndexedTerms of(BookSearchDocument document) {
+            Map<String, Integer> frequencies = new HashMap<>();
+            int length = addTerms(frequencies, tokenize(document.title()), TITLE_WEIGHT)
+                    + addTerms(frequencies, tokenize(document.authorName()), AUTHOR_WEIGHT)
+                    + addTerms(frequencies, tokenize(document.isbn()), ISBN_WEIGHT)
+                    + addTerms(frequencies, tokenize(document.synopsis()), SYNOPSIS_WEIGHT);
+            String isbn = compactIsbn(document.isbn());
+            if (!isbn.isEmpty()) {
+                length += addTerms(frequencies, List.of(isbn), ISBN_WEIGHT);
+            }
+            return new IndexedTerms(document, frequencies, length);
+        }
+
+        private static int addTerms(Map<String, Integer> frequencies, List<String> tokens, int weight) {
+            tokens.forEach(token -> frequencies.merge(token, weight, Integer::sum));
+            return tokens.size() * weight;
+        }
+    }
+
+    private record IndexedBook(BookSearchDocument document, int length, Set<String> terms) {
+    }
+
+    // Parallel arrays of document numbers and weighted term frequencies, in insertion order
+    private static class Postings {
+        private int[] docs = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+        // Document frequency for the IDF: size minus the postings of removed books
+        private int liveDocuments;
+
+        void add(int doc, int frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = frequency;
+            size++;
+            liveDocuments++;
+        }
+    }
+
+    // Guarded by the index lock
+    static class Segment {
+        private final Map<String, Postings> postings = new HashMap<>();
+        // Indexed by document number; removed books leave a null behind
+        private final List<IndexedBook> documents = new ArrayList<>();
+        private final Map<UUID, Integer> documentNumbers = new HashMap<>();
+        private long totalLength;
+        private int liveDocuments;
+        private int removedDocuments;
+
+        void add(IndexedTerms terms) {
+            UUID bookId = terms.document().id();
+            remove(bookId);
+            int doc = documents.size();
+            documents.add(new IndexedBook(terms.document(), terms.length(), terms.frequencies().keySet()));
+            documentNumbers.put(bookId, doc);
+            terms.frequencies().forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, key -> new Postings()).add(doc, frequency));
+            totalLength += terms.length();
+            liveDocuments++;
+        }
+
+        void remove(UUID bookId) {
+            Integer doc = documentNumbers.remove(bookId);
+            if (doc == null) {
+                return;
+            }
+            IndexedBook removed = documents.set(doc, null);
+            removed.terms().forEach(term -> postings.get(term).liveDocuments--);
+            totalLength -= removed.length();
+            liveDocuments--;
+            removedDocuments++;
+        }
+    }
+}
@@ -1,30 +1,47 @@
 package com.moetawol.book.book;
 
+import com.moetawol.book.common.PageCursor;
 import com.moetawol.book.common.PageResponse;
+import com.moetawol.book.common.PageResponseStreamer;
+import com.moetawol.book.common.TotalCountEstimator;
+import com.moetawol.book.common.TotalMode;
+import com.moetawol.book.common.VersionStamp;
 import com.moetawol.book.exception.OperationNotPermittedException;
 //import com.moetawol.book.file.FileStorageService;
+import com.moetawol.book.file.CoverCache;
 import com.moetawol.book.file.FileStorageService;
+import com.moetawol.book.file.FileUtils;
 import com.moetawol.book.history.BookTransactionHistory;
 //import com.moetawol.book.history.BookTransactionHistoryRepository;
 import com.moetawol.book.history.BookTransactionHistoryRepository;
-import com.moetawol.book.user.User;
+import com.moetawol.book.security.AuthenticatedUser;
+import com.moetawol.book.user.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
-
-import static com.moetawol.book.book.BookSpecification.withOwnerId;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 //import static com.moetawol.book.book.BookSpecification.withOwnerId;
 
@@ -38,156 +55,261 @@ public class BookService {
     private final BookMapper bookMapper;
     private final BookTransactionHistoryRepository transactionHistoryRepository;
     private final FileStorageService fileStorageService;
+    private final CoverCache coverCache;
+    private final TotalCountEstimator countEstimator;
+    private final UserRepository userRepository;
+    private final BookSearchIndex searchIndex;
+    private final BookSuggestionIndex suggestionIndex;
+    private final BookAuthorIndex authorIndex;
+    private final BookIsbnIndex isbnIndex;
+    private final BookResponseCache responseCache;
+    private final PageResponseStreamer pageStreamer;
+    private final ApplicationEventPublisher eventPublisher;
 
     public UUID save(BookRequest request, Authentication connectedUser) {
-         User user = ((User) connectedUser.getPrincipal());
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
+        String isbn = Isbn.normalize(request.isbn());
+        // Most ISBNs are new to the filter, only a possible duplicate costs a query
+        if (isbnIndex.mightContain(isbn) && bookRepository.existsByOwnerAndIsbn(user.getId(), isbn, request.id())) {
+            throw new OperationNotPermittedException("You already own a book with this ISBN");
+        }
         Book book = bookMapper.toBook(request);
-         book.setOwner(user);
-        return bookRepository.save(book).getId();
+         book.setOwner(userRepository.getReferenceById(user.getId()));
+        UUID bookId = bookRepository.save(book).getId();
+        isbnIndex.add(isbn);
+        eventPublisher.publishEvent(new BookChangedEvent(bookId));
+        return bookId;
     }
 
-    public BookResponse findById(UUID bookId) {
-        return bookRepository.findById(bookId)
-                .map(bookMapper::toBookResponse)
-                .orElseThrow(() -> new EntityNotFoundException("No book found with ID:: " + bookId));
+    // Served from the response cache: a hit must not open a transaction, which would check out a connection
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BookResponse findById(UUID bookId, boolean inlineCover) {
+        return responseCache.findById(bookId, inlineCover);
+    }
+
+    // The ETag methods only read a version stamp, so a matching If-None-Match never maps entities or reads covers
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String findBookETag(UUID bookId, boolean inlineCover) {
+        return VersionStamp.toETag(bookId, responseCache.findLastModified(bookId), inlineCover);
+    }
+
+    public String findAllBooksByOwnerETag(int page, int size, String cursor, TotalMode total, boolean inlineCover, Authentication connectedUser) {
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
+        return bookRepository.findOwnerBooksVersion(user.getId())
+                .eTag("owner", user.getId(), page, size, cursor, total, inlineCover);
     }
 
-    public PageResponse<BookResponse> findAllBooks(int page, int size, Authentication connectedUser) {
-         User user = ((User) connectedUser.getPrincipal());
+    public String findAllBorrowedBooksETag(int page, int size, String cursor, TotalMode total, Authentication connectedUser) {
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
+        return transactionHistoryRepository.findBorrowedBooksVersion(user.getId())
+                .eTag("borrowed", user.getId(), page, size, cursor, total);
+    }
+
+    public PageResponse<BookResponse> findAllBooks(int page, int size, String cursor, TotalMode total, boolean inlineCover, Authentication connectedUser) {
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
+        if (cursor != null) {
+            PageCursor after = PageCursor.decode(cursor);
+            List<Book> books = bookRepository.findAllDisplayableBooksAfter(user.getId(), after.createdDate(), after.id(), PageCursor.limit(size));
+            return PageResponse.ofCursor(books, size, after == PageCursor.START, book -> bookMapper.toBookResponse(book, inlineCover));
+        }
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdDate").descending());
-        Page<Book> books = bookRepository.findAllDisplayableBooks(pageable, user.getId());
-        List<BookResponse> booksResponse = books.stream()
-                .map(bookMapper::toBookResponse)
-                .toList();
-        return new PageResponse<>(
-                booksResponse,
-                books.getNumber(),
-                books.getSize(),
-                books.getTotalElements(),
-                books.getTotalPages(),
-                books.isFirst(),
-                books.isLast()
-        );
+        Slice<Book> books = bookRepository.findAllDisplayableBooks(pageable, user.getId());
+        // Estimates share one count for everyone, minus the user's own books which they never see, estimated per user
+        long totalElements = total == TotalMode.ESTIMATED
+                ? Math.max(0, countEstimator.count(total, "displayable-books", bookRepository::countDisplayableBooks)
+                        - countEstimator.count(total, "displayable-books-by-owner:" + user.getId(),
+                                () -> bookRepository.countDisplayableBooksByOwner(user.getId())))
+                : countEstimator.count(total, "displayable-books", () -> bookRepository.countAllDisplayableBooks(user.getId()));
+        return PageResponse.of(books, book -> bookMapper.toBookResponse(book, inlineCover), total, totalElements);
+    }
+
+    // The cursor is decoded up front so a bad one is still answered with a 400, before anything is streamed
+    public StreamingResponseBody streamAllBooks(int size, String cursor, boolean inlineCover, Authentication connectedUser) {
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
+        PageCursor start = PageCursor.decode(cursor);
+        return out -> pageStreamer.write(out, start, size,
+                (after, limit) -> bookRepository.findAllDisplayableBooksAfter(user.getId(), after.createdDate(), after.id(), limit),
+                book -> bookMapper.toBookResponse(book, inlineCover));
+    }
+
+    public StreamingResponseBody streamAllBooksByOwner(int size, String cursor, boolean inlineCover, Authentication connectedUser) {
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
+        PageCursor start = PageCursor.decode(cursor);
+        return out -> pageStreamer.write(out, start, size,
+                (after, limit) -> bookRepository.findAllByOwnerAfter(user.getId(), after.createdDate(), after.id(), limit),
+                book -> bookMapper.toBookResponse(book, inlineCover));
+    }
+
+    public StreamingResponseBody streamAllBorrowedBooks(int size, String cursor, Authentication connectedUser) {
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
+        PageCursor start = PageCursor.decode(cursor);
+        return out -> pageStreamer.write(out, start, size,
+                (after, limit) -> transactionHistoryRepository.findAllBorrowedBooksAfter(user.getId(), after.createdDate(), after.id(), limit),
+                bookMapper::toBorrowedBookResponse);
     }
 
-    public PageResponse<BookResponse> findAllBooksByOwner(int page, int size, Authentication connectedUser) {
-         User user = ((User) connectedUser.getPrincipal());
+    public PageResponse<BookResponse> findAllBooksByOwner(int page, int size, String cursor, TotalMode total, boolean inlineCover, Authentication connectedUser) {
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
+        if (cursor != null) {
+            PageCursor after = PageCursor.decode(cursor);
+            List<Book> books = bookRepository.findAllByOwnerAfter(user.getId(), after.createdDate(), after.id(), PageCursor.limit(size));
+            return PageResponse.ofCursor(books, size, after == PageCursor.START, book -> bookMapper.toBookResponse(book, inlineCover));
+        }
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdDate").descending());
-        Page<Book> books = bookRepository.findAll(withOwnerId(user.getId()), pageable);
+        Slice<Book> books = bookRepository.findAllByOwner(pageable, user.getId());
 //        Page<Book> books = bookRepository.findAllDisplayableBooks(pageable,user.getId());
-        List<BookResponse> booksResponse = books.stream()
+        long totalElements = countEstimator.count(total, "owner-books:" + user.getId(),
+                () -> bookRepository.countByOwnerId(user.getId()));
+        return PageResponse.of(books, book -> bookMapper.toBookResponse(book, inlineCover), total, totalElements);
+    }
+
+    @Transactional(readOnly = true)
+    public PageResponse<BookResponse> search(String query, int page, int size, Authentication connectedUser) {
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
+        BookSearchIndex.SearchHits hits = searchIndex.search(query, user.getId(), page, size);
+        return PageResponse.of(findBookResponses(hits.bookIds()), page, size, hits.total());
+    }
+
+    public PageResponse<BookResponse> findAllBooksByIsbn(String isbn, int page, int size, Authentication connectedUser) {
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
+        String normalized = Isbn.normalize(isbn);
+        if (!isbnIndex.mightContain(normalized)) {
+            return PageResponse.of(List.of(), page, size, 0);
+        }
+        List<BookResponse> books = bookRepository.findAllByIsbn(normalized, user.getId(), PageRequest.of(page, size)).stream()
                 .map(bookMapper::toBookResponse)
                 .toList();
-        return new PageResponse<>(
-                booksResponse,
-                books.getNumber(),
-                books.getSize(),
-                books.getTotalElements(),
-                books.getTotalPages(),
-                books.isFirst(),
-                books.isLast()
-        );
+        return PageResponse.of(books, page, size, bookRepository.countAllByIsbn(normalized, user.getId()));
     }
 
-        public PageResponse<BorrowedBookResponse> findAllBorrowedBooks(int page, int size, Authentication connectedUser) {
-         User user = ((User) connectedUser.getPrincipal());
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createdDate").descending());
-        Page<BookTransactionHistory> allBorrowedBooks = transactionHistoryRepository.findAllBorrowedBooks(pageable, user.getId());
-        List<BorrowedBookResponse> booksResponse = allBorrowedBooks.stream()
-                .map(bookMapper::toBorrowedBookResponse)
+    // The cursor is the key of the last author of the previous page, an empty one asks for the first page
+    public PageResponse<AuthorFacet> findAuthors(int page, int size, String cursor, Authentication connectedUser) {
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
+        if (cursor != null) {
+            BookAuthorIndex.AuthorPage authors = authorIndex.findAuthorsAfter(user.getId(), cursor, size);
+            return PageResponse.ofCursor(authors.authors(), size, cursor.isEmpty(), authors.total(), authors.nextKey());
+        }
+        BookAuthorIndex.AuthorPage authors = authorIndex.findAuthors(user.getId(), page, size);
+        return PageResponse.of(authors.authors(), page, size, authors.total());
+    }
+
+    @Transactional(readOnly = true)
+    public PageResponse<BookResponse> findAllBooksByAuthor(String author, int page, int size, Authentication connectedUser) {
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
+        BookAuthorIndex.AuthorBooks books = authorIndex.findBooks(author, user.getId(), page, size);
+        return PageResponse.of(findBookResponses(books.bookIds()), page, size, books.total());
+    }
+
+    // One query for the page, then restore the order chosen by the index
+    private List<BookResponse> findBookResponses(List<UUID> bookIds) {
+        Map<UUID, Book> books = bookRepository.findAllByIdIn(bookIds).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        return bookIds.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .map(bookMapper::toBookResponse)
                 .toList();
-        return new PageResponse<>(
-                booksResponse,
-                allBorrowedBooks.getNumber(),
-                allBorrowedBooks.getSize(),
-                allBorrowedBooks.getTotalElements(),
-                allBorrowedBooks.getTotalPages(),
-                allBorrowedBooks.isFirst(),
-                allBorrowedBooks.isLast()
-        );
     }
 
+    public List<BookSuggestion> suggest(String prefix, int limit) {
+        return suggestionIndex.suggest(prefix, limit);
+    }
 
-    public PageResponse<BorrowedBookResponse> findAllReturnedBooks(int page, int size, Authentication connectedUser) {
-         User user = ((User) connectedUser.getPrincipal());
+        public PageResponse<BorrowedBookResponse> findAllBorrowedBooks(int page, int size, String cursor, TotalMode total, Authentication connectedUser) {
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
+        if (cursor != null) {
+            PageCursor after = PageCursor.decode(cursor);
+            List<BookTransactionHistory> histories = transactionHistoryRepository.findAllBorrowedBooksAfter(user.getId(), after.createdDate(), after.id(), PageCursor.limit(size));
+            return PageResponse.ofCursor(histories, size, after == PageCursor.START, bookMapper::toBorrowedBookResponse);
+        }
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdDate").descending());
-        Page<BookTransactionHistory> allBorrowedBooks = transactionHistoryRepository.findAllReturnedBooks(pageable, user.getId());
-        List<BorrowedBookResponse> booksResponse = allBorrowedBooks.stream()
-                .map(bookMapper::toBorrowedBookResponse)
-                .toList();
-        return new PageResponse<>(
-                booksResponse,
-                allBorrowedBooks.getNumber(),
-                allBorrowedBooks.getSize(),
-                allBorrowedBooks.getTotalElements(),
-                allBorrowedBooks.getTotalPages(),
-                allBorrowedBooks.isFirst(),
-                allBorrowedBooks.isLast()
-        );
+        Slice<BookTransactionHistory> allBorrowedBooks = transactionHistoryRepository.findAllBorrowedBooks(pageable, user.getId());
+        long totalElements = countEstimator.count(total, "borrowed-books:" + user.getId(),
+                () -> transactionHistoryRepository.countAllBorrowedBooks(user.getId()));
+        return PageResponse.of(allBorrowedBooks, bookMapper::toBorrowedBookResponse, total, totalElements);
+    }
+
+
+    public PageResponse<BorrowedBookResponse> findAllReturnedBooks(int page, int size, String cursor, TotalMode total, Authentication connectedUser) {
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
+        if (cursor != null) {
+            PageCursor after = PageCursor.decode(cursor);
+            List<BookTransactionHistory> histories = transactionHistoryRepository.findAllReturnedBooksAfter(user.getId(), after.createdDate(), after.id(), PageCursor.limit(size));
+            return PageResponse.ofCursor(histories, size, after == PageCursor.START, bookMapper::toBorrowedBookResponse);
+        }
+        Pageable pageable = PageRequest.of(page, size, Sort.by("createdDate").descending());
+        Slice<BookTransactionHistory> allBorrowedBooks = transactionHistoryRepository.findAllReturnedBooks(pageable, user.getId());
+        long totalElements = countEstimator.count(total, "returned-books:" + user.getId(),
+                () -> transactionHistoryRepository.countAllReturnedBooks(user.getId()));
+        return PageResponse.of(allBorrowedBooks, bookMapper::toBorrowedBookResponse, total, totalElements);
     }
 
     public UUID updateShareableStatus(UUID bookId, Authentication connectedUser) {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new EntityNotFoundException("No book found with ID:: " + bookId));
-         User user = ((User) connectedUser.getPrincipal());
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
 //        if (!Objects.equals(book.getCreatedBy(), connectedUser.getName())) {
 //            throw new OperationNotPermittedException("You cannot update others books shareable status");
 //        }
-                if (!Objects.equals(book.getOwner().getBooks(), user.getId())) {
+        if (!Objects.equals(book.getOwner().getId(), user.getId())) {
             throw new OperationNotPermittedException("You cannot update others books shareable status");
         }
 
         book.setShareable(!book.isShareable());
         bookRepository.save(book);
+        eventPublisher.publishEvent(new BookChangedEvent(bookId));
         return bookId;
     }
 
     public UUID updateArchivedStatus(UUID bookId, Authentication connectedUser) {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new EntityNotFoundException("No book found with ID:: " + bookId));
-         User user = ((User) connectedUser.getPrincipal());
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
 //        if (!Objects.equals(book.getCreatedBy(), user.getName())) {
 //            throw new OperationNotPermittedException("You cannot update others books archived status");
 //        }
-        if (!Objects.equals(book.getOwner().getBooks(), user.getId())) {
+        if (!Objects.equals(book.getOwner().getId(), user.getId())) {
             throw new OperationNotPermittedException("You cannot update others books archived status");
         }
         book.setArchived(!book.isArchived());
         bookRepository.save(book);
+        eventPublisher.publishEvent(new BookChangedEvent(bookId));
         return bookId;
     }
 
     public UUID borrowBook(UUID bookId, Authentication connectedUser) {
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new EntityNotFoundException("No book found with ID:: " + bookId));
-        if (book.isArchived() || !book.isShareable()) {
-            throw new OperationNotPermittedException("The requested book cannot be borrowed since it is archived or not shareable");
-        }
-         User user = ((User) connectedUser.getPrincipal());
-//        if (Objects.equals(book.getCreatedBy(), connectedUser.getName())) {
-//            throw new OperationNotPermittedException("You cannot borrow your own book");
-//        }
-        if (!Objects.equals(book.getOwner().getId(), user.getId())) {
-            throw new OperationNotPermittedException("ou cannot borrow your own book");
-        }
-        final boolean isAlreadyBorrowedByUser = transactionHistoryRepository.isAlreadyBorrowedByUser(bookId, connectedUser.getName());
-        if (isAlreadyBorrowedByUser) {
-            throw new OperationNotPermittedException("You already borrowed this book and it is still not returned or the return is not approved by the owner");
-        }
-
-        final boolean isAlreadyBorrowedByOtherUser = transactionHistoryRepository.isAlreadyBorrowed(bookId);
-        if (isAlreadyBorrowedByOtherUser) {
-            throw new OperationNotPermittedException("The requested book is already borrowed");
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
+        // The claim checks availability and takes the book in one statement, so two borrowers cannot both win
+        if (bookRepository.claimForBorrowing(bookId, user.getId()) == 0) {
+            throw borrowingRejection(bookId, user.getId());
         }
 
         BookTransactionHistory bookTransactionHistory = BookTransactionHistory.builder()
-                .user(user)
-                .book(book)
+                .user(userRepository.getReferenceById(user.getId()))
+                .book(bookRepository.getReferenceById(bookId))
                 .returned(false)
                 .returnApproved(false)
                 .build();
-        return transactionHistoryRepository.save(bookTransactionHistory).getId();
+        UUID historyId = transactionHistoryRepository.save(bookTransactionHistory).getId();
+        eventPublisher.publishEvent(new BookChangedEvent(bookId));
+        return historyId;
+
+    }
 
+    // Only runs when the claim failed, to tell the user why
+    private RuntimeException borrowingRejection(UUID bookId, UUID userId) {
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> new EntityNotFoundException("No book found with ID:: " + bookId));
+        if (book.isArchived() || !book.isShareable()) {
+            return new OperationNotPermittedException("The requested book cannot be borrowed since it is archived or not shareable");
+        }
+        if (Objects.equals(book.getOwner().getId(), userId)) {
+            return new OperationNotPermittedException("You cannot borrow your own book");
+        }
+        if (Objects.equals(book.getBorrowerId(), userId)) {
+            return new OperationNotPermittedException("You already borrowed this book and it is still not returned or the return is not approved by the owner");
+        }
+        return new OperationNotPermittedException("The requested book is already borrowed");
     }
 
     public UUID returnBorrowedBook(UUID bookId, Authentication connectedUser) {
@@ -197,19 +319,21 @@ public class BookService {
             throw new OperationNotPermittedException("The requested book is archived or not shareable");
         }
 
-         User user = ((User) connectedUser.getPrincipal());
-        if (!Objects.equals(book.getOwner().getId(), user.getId())) {
-            throw new OperationNotPermittedException("ou cannot borrow your own book");
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
+        if (Objects.equals(book.getOwner().getId(), user.getId())) {
+            throw new OperationNotPermittedException("You cannot borrow or return your own book");
         }
 //        if (Objects.equals(book.getCreatedBy(), connectedUser.getName())) {
 //            throw new OperationNotPermittedException("You cannot borrow or return your own book");
 //        }
 
-        BookTransactionHistory bookTransactionHistory = transactionHistoryRepository.findByBookIdAndUserId(bookId, connectedUser.getName())
-                .orElseThrow(() -> new OperationNotPermittedException("You cannot borrow or return your own book"));
+        BookTransactionHistory bookTransactionHistory = transactionHistoryRepository.findByBookIdAndUserId(bookId, user.getId())
+                .orElseThrow(() -> new OperationNotPermittedException("You did not borrow this book"));
 
         bookTransactionHistory.setReturned(true);
-        return transactionHistoryRepository.save(bookTransactionHistory).getId();
+        UUID historyId = transactionHistoryRepository.save(bookTransactionHistory).getId();
+        eventPublisher.publishEvent(new BookChangedEvent(bookId));
+        return historyId;
     }
 
     public UUID approveReturnBorrowedBook(UUID bookId, Authentication connectedUser) {
@@ -218,7 +342,7 @@ public class BookService {
         if (book.isArchived() || !book.isShareable()) {
             throw new OperationNotPermittedException("The requested book is archived or not shareable");
         }
-         User user = ((User) connectedUser.getPrincipal());
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
         if (!Objects.equals(book.getOwner().getId(), user.getId())) {
             throw new OperationNotPermittedException("You cannot approve the return of a book you do not own");
         }
@@ -226,22 +350,49 @@ public class BookService {
 //            throw new OperationNotPermittedException("You cannot approve the return of a book you do not own");
 //        }
 
-        BookTransactionHistory bookTransactionHistory = transactionHistoryRepository.findByBookIdAndOwnerId(bookId, connectedUser.getName())
+        BookTransactionHistory bookTransactionHistory = transactionHistoryRepository.findByBookIdAndOwnerId(bookId, user.getId())
                 .orElseThrow(() -> new OperationNotPermittedException("The book is not returned yet. You cannot approve its return"));
 
         bookTransactionHistory.setReturnApproved(true);
-        return transactionHistoryRepository.save(bookTransactionHistory).getId();
+        // The book becomes available again once the owner has it back
+        book.setBorrowerId(null);
+        UUID historyId = transactionHistoryRepository.save(bookTransactionHistory).getId();
+        eventPublisher.publishEvent(new BookChangedEvent(bookId));
+        return historyId;
     }
 
     public void uploadBookCoverPicture(MultipartFile file, Authentication connectedUser, UUID bookId) {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new EntityNotFoundException("No book found with ID:: " + bookId));
-         User user = ((User) connectedUser.getPrincipal());
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
 //        var profilePicture = fileStorageService.saveFile(file, connectedUser.getName());
         var profilePicture = fileStorageService.saveFile(file,book, user.getId());
 
+        coverCache.invalidate(book.getBookCover());
         book.setBookCover(profilePicture);
+        book.setBookCoverHash(FileUtils.computeContentHash(profilePicture));
+        book.setBookCoverSize(file.getSize());
         bookRepository.save(book);
+        eventPublisher.publishEvent(new BookChangedEvent(bookId));
+    }
+
+    @Transactional(readOnly = true)
+    public BookCover findBookCover(UUID bookId) {
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> new EntityNotFoundException("No book found with ID:: " + bookId));
+        Resource cover = coverCache.getResource(book.getBookCover(), book.getBookCoverHash());
+        if (cover == null) {
+            throw new EntityNotFoundException("No cover found for the book with ID:: " + bookId);
+        }
+        LocalDateTime lastModified = book.getLastModifiedDate() != null
+                ? book.getLastModifiedDate()
+                : book.getCreatedDate();
+        return new BookCover(
+                cover,
+                MediaTypeFactory.getMediaType(cover).orElse(MediaType.APPLICATION_OCTET_STREAM),
+                book.getBookCoverHash(),
+                lastModified.atZone(ZoneId.systemDefault()).toInstant()
+        );
     }
 
 
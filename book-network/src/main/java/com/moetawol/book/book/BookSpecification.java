@@ -7,6 +7,6 @@ import java.util.UUID;
 public class BookSpecification {
 
     public static Specification<Book> withOwnerId(UUID ownerId) {
-        return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("createdBy"), ownerId);
+        return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("owner").get("id"), ownerId);
     }
 }
@@ -0,0 +1,12 @@
+package com.moetawol.book.book;
+
+/**
+ * A typeahead entry: a book title or an author name, as first written.
+ */
+public record BookSuggestion(String text, Type type) {
+
+    public enum Type {
+        TITLE,
+        AUTHOR
+    }
+}
@@ -0,0 +1,337 @@
+package com.moetawol.book.book;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Typeahead over normalized titles and author names, held in a radix trie.
+ * Nodes near the root, where prefixes match many entries, keep their best entries by popularity precomputed,
+ * so short prefixes are answered without walking the subtree; deeper subtrees are small enough to walk.
+ */
+@Service
+public class BookSuggestionIndex extends BookIndex<BookSuggestionIndex.State, BookSuggestionSource> {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    // Nodes starting within this many characters keep a precomputed top list
+    private static final int CACHED_DEPTH = 6;
+    // Words of a title or name after which a prefix may also start ("herb" finds "Frank Herbert")
+    private static final int MAX_WORD_STARTS = 4;
+    private static final int MAX_KEY_LENGTH = 64;
+
+    private static final Comparator<Entry> BY_WEIGHT = Comparator.comparingLong((Entry entry) -> entry.weight)
+            .reversed()
+            .thenComparing(entry -> entry.text);
+
+    public BookSuggestionIndex(BookRepository bookRepository, BookKeysetLoader loader) {
+        super("Suggestion index", loader, bookRepository::findSuggestionSourcesAfter, BookSuggestionSource::id, State::new);
+    }
+
+    public List<BookSuggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        int size = Math.min(Math.max(limit, 1), MAX_SUGGESTIONS);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return state.find(key, size).stream()
+                    .map(entry -> new BookSuggestion(entry.text, entry.type))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the trie from the database, which also refreshes popularity.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${application.search.suggest-rebuild-interval:PT1H}",
+            initialDelayString = "${application.search.suggest-rebuild-interval:PT1H}")
+    public void rebuild() {
+        super.rebuild();
+    }
+
+    @Override
+    protected void add(State state, BookSuggestionSource book) {
+        state.add(book);
+    }
+
+    @Override
+    protected void remove(State state, UUID bookId) {
+        state.remove(bookId);
+    }
+
+    @Override
+    protected int size(State state) {
+        return state.entries.size();
+    }
+
+    static String normalize(String text) {
+        String normalized = String.join(" ", BookSearchIndex.tokenize(text));
+        return normalized.length() > MAX_KEY_LENGTH ? normalized.substring(0, MAX_KEY_LENGTH) : normalized;
+    }
+
+    // The full text, then the same text starting at each of its next words
+    private static List<String> keys(String normalized) {
+        List<String> keys = new ArrayList<>();
+        keys.add(normalized);
+        int from = 0;
+        for (int word = 1; word < MAX_WORD_STARTS; word++) {
+            int space = normalized.indexOf(' ', from);
+            if (space < 0) {
+                break;
+            }
+            keys.add(normalized.substring(space + 1));
+            from = space + 1;
+        }
+        return keys;
+    }
+
+    // One suggestion, shared by every book with the same normalized title (or author) and by all its keys
+    private static class Entry {
+        private final String text;
+        private final BookSuggestion.Type type;
+        private final List<String> keys;
+        private long weight;
+        private int books;
+
+        Entry(String text, BookSuggestion.Type type, List<String> keys) {
+            this.text = text;
+            this.type = type;
+            this.keys = keys;
+        }
+    }
+
+    private static class Node {
+        private String edge;
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+        private List<Entry> terminals;
+        // Best entries of the subtree, only on nodes close to the root
+        private Entry[] top;
+
+        Node(String edge) {
+            this.edge = edge;
+        }
+
+        int indexOf(char label) {
+            return Arrays.binarySearch(labels, label);
+        }
+
+        void addChild(Node child) {
+            int index = -(indexOf(child.edge.charAt(0)) + 1);
+            labels = insert(labels, index, child.edge.charAt(0));
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, index);
+            grown[index] = child;
+            System.arraycopy(children, index, grown, index + 1, children.length - index);
+            children = grown;
+        }
+
+        private static char[] insert(char[] array, int index, char value) {
+            char[] grown = new char[array.length + 1];
+            System.arraycopy(array, 0, grown, 0, index);
+            grown[index] = value;
+            System.arraycopy(array, index, grown, index + 1, array.length - index);
+            return grown;
+        }
+
+        void offer(Entry entry) {
+            boolean present = Arrays.asList(top).contains(entry);
+            if (!present && top.length == MAX_SUGGESTIONS && BY_WEIGHT.compare(entry, top[top.length - 1]) >= 0) {
+                return;
+            }
+            Entry[] candidates = present ? top.clone() : Arrays.copyOf(top, top.length + 1);
+            if (!present) {
+                candidates[top.length] = entry;
+            }
+            Arrays.sort(candidates, BY_WEIGHT);
+            top = candidates.length > MAX_SUGGESTIONS ? Arrays.copyOf(candidates, MAX_SUGGESTIONS) : candidates;
+        }
+
+        // Leaves the list shorter until the next rebuild refills it
+        void withdraw(Entry entry) {
+            top = Arrays.stream(top).filter(candidate -> candidate != entry).toArray(Entry[]::new);
+        }
+    }
+
+    // Guarded by the index lock
+    static class State {
+        private final Node root = new Node("");
+        private final Map<String, Entry> entries = new HashMap<>();
+        private final Map<UUID, BookSuggestionSource> books = new HashMap<>();
+
+        State() {
+            root.top = new Entry[0];
+        }
+
+        void add(BookSuggestionSource book) {
+            remove(book.id());
+            if (!book.isSuggestible()) {
+                return;
+            }
+            books.put(book.id(), book);
+            contribute(book.title(), BookSuggestion.Type.TITLE, book.weight(), 1);
+            contribute(book.authorName(), BookSuggestion.Type.AUTHOR, book.weight(), 1);
+        }
+
+        void remove(UUID bookId) {
+            BookSuggestionSource book = books.remove(bookId);
+            if (book != null) {
+                contribute(book.title(), BookSuggestion.Type.TITLE, -book.weight(), -1);
+                contribute(book.authorName(), BookSuggestion.Type.AUTHOR, -book.weight(), -1);
+            }
+        }
+
+        private void contribute(String text, BookSuggestion.Type type, long weight, int books) {
+            String normalized = normalize(text);
+            if (normalized.isEmpty()) {
+                return;
+            }
+            Entry entry = entries.computeIfAbsent(type + ":" + normalized,
+                    key -> new Entry(text.strip(), type, keys(normalized)));
+            entry.weight += weight;
+            entry.books += books;
+            boolean removed = entry.books <= 0;
+            if (removed) {
+                entries.remove(type + ":" + normalized);
+            }
+            for (String key : entry.keys) {
+                place(key, entry, removed);
+            }
+        }
+
+        // Walks (and splits) the trie down to the key, refreshing the top lists on the way
+        private void place(String key, Entry entry, boolean removed) {
+            Node node = root;
+            int depth = 0;
+            updateTop(node, entry, removed);
+            while (depth < key.length()) {
+                int index = node.indexOf(key.charAt(depth));
+                if (index < 0) {
+                    if (removed) {
+                        return;
+                    }
+                    Node leaf = new Node(key.substring(depth));
+                    leaf.top = depth < CACHED_DEPTH ? new Entry[0] : null;
+                    node.addChild(leaf);
+                    node = leaf;
+                    updateTop(node, entry, false);
+                    break;
+                }
+                Node child = node.children[index];
+                int common = commonPrefix(child.edge, key, depth);
+                if (common < child.edge.length()) {
+                    if (removed) {
+                        return;
+                    }
+                    child = split(node, index, child, common);
+                }
+                node = child;
+                depth += common;
+                updateTop(node, entry, removed);
+            }
+
+            if (removed) {
+                if (node.terminals != null) {
+                    node.terminals.remove(entry);
+                }
+            } else {
+                if (node.terminals == null) {
+                    node.terminals = new ArrayList<>(1);
+                }
+                if (!node.terminals.contains(entry)) {
+                    node.terminals.add(entry);
+                }
+            }
+        }
+
+        private static Node split(Node parent, int index, Node child, int common) {
+            Node middle = new Node(child.edge.substring(0, common));
+            child.edge = child.edge.substring(common);
+            middle.addChild(child);
+            // The middle node covers exactly the old child's subtree
+            middle.top = child.top == null ? null : child.top.clone();
+            parent.children[index] = middle;
+            return middle;
+        }
+
+        private static void updateTop(Node node, Entry entry, boolean removed) {
+            if (node.top == null) {
+                return;
+            }
+            if (removed) {
+                node.withdraw(entry);
+            } else {
+                node.offer(entry);
+            }
+        }
+
+        List<Entry> find(String prefix, int size) {
+            Node node = root;
+            int depth = 0;
+            while (depth < prefix.length()) {
+                int index = node.indexOf(prefix.charAt(depth));
+                if (index < 0) {
+                    return List.of();
+                }
+                Node child = node.children[index];
+                int common = commonPrefix(child.edge, prefix, depth);
+                if (common < child.edge.length() && depth + common < prefix.length()) {
+                    return List.of();
+                }
+                node = child;
+                depth += common;
+            }
+            if (node.top != null) {
+                return Arrays.asList(node.top).subList(0, Math.min(size, node.top.length));
+            }
+            return collect(node, size);
+        }
+
+        private static List<Entry> collect(Node start, int size) {
+            PriorityQueue<Entry> best = new PriorityQueue<>(size + 1, BY_WEIGHT.reversed());
+            Set<Entry> seen = new HashSet<>();
+            List<Node> pending = new ArrayList<>(List.of(start));
+            while (!pending.isEmpty()) {
+                Node node = pending.remove(pending.size() - 1);
+                if (node.terminals != null) {
+                    for (Entry entry : node.terminals) {
+                        if (seen.add(entry)) {
+                            best.offer(entry);
+                            if (best.size() > size) {
+                                best.poll();
+                            }
+                        }
+                    }
+                }
+                pending.addAll(Arrays.asList(node.children));
+            }
+            List<Entry> result = new ArrayList<>(best);
+            result.sort(BY_WEIGHT);
+            return result;
+        }
+
+        private static int commonPrefix(String edge, String key, int offset) {
+            int length = Math.min(edge.length(), key.length() - offset);
+            int i = 0;
+            while (i < length && edge.charAt(i) == key.charAt(offset + i)) {
+                i++;
+            }
+            return i;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.moetawol.book.book;
+
+import java.util.UUID;
+
+/**
+ * What the typeahead needs from a book; popularity is the number of times it was borrowed.
+ */
+public record BookSuggestionSource(
+        UUID id,
+        String title,
+        String authorName,
+        boolean archived,
+        boolean shareable,
+        long borrowCount
+) {
+
+    // Imported books have never been borrowed
+    public static BookSuggestionSource imported(BookSearchDocument book) {
+        return new BookSuggestionSource(book.id(), book.title(), book.authorName(), book.archived(), book.shareable(), 0);
+    }
+
+    public boolean isSuggestible() {
+        return !archived && shareable;
+    }
+
+    // Books never borrowed still count once
+    public long weight() {
+        return borrowCount + 1;
+    }
+}
@@ -0,0 +1,10 @@
+package com.moetawol.book.book;
+
+import java.util.List;
+
+/**
+ * Published for each batch of a bulk import. Carries the new books so the in-memory indexes
+ * can add them without reading each one back, as they do for a {@link BookChangedEvent}.
+ */
+public record BooksImportedEvent(List<BookSearchDocument> books) {
+}
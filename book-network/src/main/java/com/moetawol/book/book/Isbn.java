@@ -0,0 +1,56 @@
+package com.moetawol.book.book;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Canonical form of an ISBN: valid ISBN-10s are converted to their ISBN-13, so both spellings of a book compare equal.
+ */
+public final class Isbn {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[\\s-]");
+
+    private Isbn() {
+    }
+
+    /**
+     * Returns the 13-digit ISBN for a valid ISBN-10 or ISBN-13 written with or without hyphens and spaces.
+     * Anything else is only stripped of separators and upper-cased; blank input gives null.
+     */
+    public static String normalize(String isbn) {
+        if (isbn == null || isbn.isBlank()) {
+            return null;
+        }
+        String compact = SEPARATORS.matcher(isbn).replaceAll("").toUpperCase(Locale.ROOT);
+        if (compact.length() == 10 && isValidIsbn10(compact)) {
+            String isbn13 = "978" + compact.substring(0, 9);
+            return isbn13 + isbn13CheckDigit(isbn13);
+        }
+        return compact;
+    }
+
+    private static boolean isValidIsbn10(String compact) {
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = compact.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c == 'X' && i == 9) {
+                digit = 10;
+            } else {
+                return false;
+            }
+            sum += digit * (10 - i);
+        }
+        return sum % 11 == 0;
+    }
+
+    private static int isbn13CheckDigit(String first12) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (first12.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
@@ -0,0 +1,61 @@
+package com.moetawol.book.common;
+
+import com.moetawol.book.exception.InvalidPageCursorException;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Position in a list sorted by (createdDate desc, id desc), sent to clients as an opaque string.
+ * Queries seek directly to the rows after the cursor instead of skipping page * size rows.
+ */
+public record PageCursor(LocalDateTime createdDate, UUID id) {
+
+    // Sorts after every real row, so the first page uses the same query as the next ones
+    public static final PageCursor START = new PageCursor(
+            LocalDateTime.of(9999, 12, 31, 23, 59, 59),
+            new UUID(-1L, -1L)
+    );
+
+    private static final String SEPARATOR = "|";
+
+    // Truncated to the column precision, or a row created in this session would match its own cursor
+    public static PageCursor of(BaseEntity entity) {
+        return new PageCursor(entity.getCreatedDate().truncatedTo(ChronoUnit.MICROS), entity.getId());
+    }
+
+    // An empty cursor asks for the first page in cursor mode
+    public static PageCursor decode(String cursor) {
+        if (StringUtils.isBlank(cursor)) {
+            return START;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), UTF_8);
+            int separatorIndex = decoded.indexOf(SEPARATOR);
+            return new PageCursor(
+                    LocalDateTime.parse(decoded.substring(0, separatorIndex)),
+                    UUID.fromString(decoded.substring(separatorIndex + 1))
+            );
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new InvalidPageCursorException("Invalid page cursor:: " + cursor);
+        }
+    }
+
+    // Fetches one extra row to know whether a next page exists without counting
+    public static Pageable limit(int size) {
+        return PageRequest.of(0, size + 1);
+    }
+
+    public String encode() {
+        String raw = createdDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(UTF_8));
+    }
+}
@@ -1,12 +1,15 @@
 package com.moetawol.book.common;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
+import java.util.function.Function;
 
 @Getter
 @Setter
@@ -14,6 +17,10 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 public class PageResponse<T> {
+
+    // Reported in totalElements and totalPages when the total is not computed
+    public static final int UNKNOWN_TOTAL = -1;
+
     private List<T> content;
     private int number;
     private int size;
@@ -21,4 +28,83 @@ public class PageResponse<T> {
     private int totalPages;
     private boolean first;
     private boolean last;
+    // Opaque cursor for the next page in cursor mode, null on the last page or in offset mode
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+    @Builder.Default
+    private TotalMode total = TotalMode.EXACT;
+
+    /**
+     * Builds an offset-mode page from a slice; the total comes from {@link TotalCountEstimator}.
+     */
+    public static <E, T> PageResponse<T> of(
+            Slice<E> slice,
+            Function<E, T> mapper,
+            TotalMode total,
+            long totalElements
+    ) {
+        return PageResponse.<T>builder()
+                .content(slice.map(mapper).getContent())
+                .number(slice.getNumber())
+                .size(slice.getSize())
+                .totalElements(totalElements)
+                .totalPages(totalElements < 0 ? UNKNOWN_TOTAL : (int) Math.ceil((double) totalElements / slice.getSize()))
+                .first(slice.isFirst())
+                .last(!slice.hasNext())
+                .total(total)
+                .build();
+    }
+
+    /**
+     * Builds an offset-mode page from rows that were already paged elsewhere (e.g. by the search index).
+     */
+    public static <T> PageResponse<T> of(List<T> content, int page, int size, long totalElements) {
+        return PageResponse.<T>builder()
+                .content(content)
+                .number(page)
+                .size(size)
+                .totalElements(totalElements)
+                .totalPages((int) Math.ceil((double) totalElements / size))
+                .first(page == 0)
+                .last((long) (page + 1) * size >= totalElements)
+                .build();
+    }
+
+    /**
+     * Builds a cursor-mode page from rows that were already paged elsewhere (e.g. by the author index).
+     */
+    public static <T> PageResponse<T> ofCursor(List<T> content, int size, boolean first, long totalElements, String nextCursor) {
+        return PageResponse.<T>builder()
+                .content(content)
+                .size(size)
+                .totalElements(totalElements)
+                .totalPages((int) Math.ceil((double) totalElements / size))
+                .first(first)
+                .last(nextCursor == null)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Builds a cursor-mode page from rows fetched with {@link PageCursor#limit(int)}.
+     */
+    public static <E extends BaseEntity, T> PageResponse<T> ofCursor(
+            List<E> rows,
+            int size,
+            boolean first,
+            Function<E, T> mapper
+    ) {
+        boolean hasNext = rows.size() > size;
+        List<E> pageRows = hasNext ? rows.subList(0, size) : rows;
+        return PageResponse.<T>builder()
+                .content(pageRows.stream().map(mapper).toList())
+                .size(size)
+                .totalElements(UNKNOWN_TOTAL)
+                .totalPages(UNKNOWN_TOTAL)
+                .first(first)
+                .last(!hasNext)
+                .nextCursor(hasNext ? PageCursor.of(pageRows.get(pageRows.size() - 1)).encode() : null)
+                .total(TotalMode.NONE)
+                .build();
+    }
 }
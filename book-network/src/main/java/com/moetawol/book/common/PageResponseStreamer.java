@@ -0,0 +1,102 @@
+package com.moetawol.book.common;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Writes a cursor-mode {@link PageResponse} straight to the response stream, reading its rows in keyset batches.
+ * Each batch is read and mapped in its own short read-only transaction, so a connection and a persistence context
+ * are only held while a batch is fetched, never while the client downloads, and the heap used by a request does not
+ * depend on the page size.
+ */
+@Component
+public class PageResponseStreamer {
+
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate batchTransaction;
+
+    @Value("${application.streaming.batch-size:100}")
+    private int batchSize;
+
+    public PageResponseStreamer(ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.objectMapper = objectMapper;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.batchTransaction.setReadOnly(true);
+    }
+
+    /**
+     * @param fetch  reads the rows after a cursor, following the {@link PageCursor#limit(int)} contract
+     * @param mapper runs in the batch transaction, so it may read lazy associations of the rows
+     */
+    public <E extends BaseEntity, T> void write(
+            OutputStream out,
+            PageCursor start,
+            int size,
+            BiFunction<PageCursor, Pageable, List<E>> fetch,
+            Function<E, T> mapper
+    ) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            // The servlet container owns the response stream
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartObject();
+            json.writeArrayFieldStart("content");
+
+            PageCursor after = start;
+            int written = 0;
+            boolean hasNext = false;
+            while (written < size) {
+                int limit = Math.min(batchSize, size - written);
+                PageCursor cursor = after;
+                Batch<T> batch = batchTransaction.execute(status -> {
+                    List<E> rows = fetch.apply(cursor, PageCursor.limit(limit));
+                    boolean more = rows.size() > limit;
+                    List<E> read = more ? rows.subList(0, limit) : rows;
+                    return new Batch<>(
+                            read.stream().map(mapper).toList(),
+                            read.isEmpty() ? cursor : PageCursor.of(read.get(read.size() - 1)),
+                            more
+                    );
+                });
+                // Written once the transaction has released its connection
+                for (T row : batch.rows()) {
+                    json.writeObject(row);
+                }
+                written += batch.rows().size();
+                after = batch.last();
+                hasNext = batch.hasNext();
+                json.flush();
+                if (!hasNext) {
+                    break;
+                }
+            }
+
+            // Same fields as PageResponse.ofCursor, written after the content they depend on
+            json.writeEndArray();
+            json.writeNumberField("number", 0);
+            json.writeNumberField("size", size);
+            json.writeNumberField("totalElements", PageResponse.UNKNOWN_TOTAL);
+            json.writeNumberField("totalPages", PageResponse.UNKNOWN_TOTAL);
+            json.writeBooleanField("first", start == PageCursor.START);
+            json.writeBooleanField("last", !hasNext);
+            if (hasNext) {
+                json.writeStringField("nextCursor", after.encode());
+            }
+            json.writeObjectField("total", TotalMode.NONE);
+            json.writeEndObject();
+        }
+    }
+
+    private record Batch<T>(List<T> rows, PageCursor last, boolean hasNext) {
+    }
+}
@@ -0,0 +1,120 @@
+package com.moetawol.book.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Resolves list totals according to the requested {@link TotalMode}.
+ * Estimated totals are counted once, then served from memory and refreshed in the background,
+ * a bounded number per run on a thread of their own. Once max-entries are kept, a new list replaces the one
+ * least recently asked for.
+ */
+@Service
+@Slf4j
+public class TotalCountEstimator implements InitializingBean, DisposableBean {
+
+    @Value("${application.pagination.estimates.max-entries:10000}")
+    private int maxEntries;
+
+    // Counts that nobody asked for during this period are dropped instead of refreshed
+    @Value("${application.pagination.estimates.idle-timeout:PT10M}")
+    private Duration idleTimeout;
+
+    @Value("${application.pagination.estimates.refresh-interval:PT1M}")
+    private Duration refreshInterval;
+
+    // Counts refreshed per run, the stalest first; the others keep their value until a later run
+    @Value("${application.pagination.estimates.refresh-batch-size:100}")
+    private int refreshBatchSize;
+
+    private final Map<String, Estimate> estimates = new ConcurrentHashMap<>();
+    // Count queries can be slow, they must not hold up the jobs of the shared scheduler
+    private ScheduledExecutorService refresher;
+
+    public long count(TotalMode mode, String key, Supplier<Long> counter) {
+        return switch (mode) {
+            case EXACT -> counter.get();
+            case NONE -> PageResponse.UNKNOWN_TOTAL;
+            case ESTIMATED -> estimate(key, counter);
+        };
+    }
+
+    private long estimate(String key, Supplier<Long> counter) {
+        Estimate estimate = estimates.get(key);
+        if (estimate == null) {
+            // First request for this list pays for one exact count
+            estimate = new Estimate(counter);
+            estimate.value = counter.get();
+            if (estimates.size() >= maxEntries) {
+                evictLeastRecentlyUsed();
+            }
+            estimates.put(key, estimate);
+        }
+        estimate.lastAccess = Instant.now();
+        return estimate.value;
+    }
+
+    // A scan of the entries, only paid by a new list when the map is full, right after its exact count
+    private void evictLeastRecentlyUsed() {
+        estimates.entrySet().stream()
+                .min(Comparator.comparing(entry -> entry.getValue().lastAccess))
+                .ifPresent(entry -> estimates.remove(entry.getKey(), entry.getValue()));
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "count-estimates");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = refreshInterval.toMillis();
+        refresher.scheduleWithFixedDelay(this::refreshEstimates, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+
+    void refreshEstimates() {
+        Instant idleLimit = Instant.now().minus(idleTimeout);
+        estimates.entrySet().removeIf(entry -> entry.getValue().lastAccess.isBefore(idleLimit));
+        estimates.entrySet().stream()
+                .sorted(Comparator.comparing(entry -> entry.getValue().refreshedAt))
+                .limit(refreshBatchSize)
+                .forEach(entry -> {
+                    Estimate estimate = entry.getValue();
+                    try {
+                        estimate.value = estimate.counter.get();
+                        estimate.refreshedAt = Instant.now();
+                    } catch (RuntimeException e) {
+                        log.warn("Could not refresh the estimated total of {}", entry.getKey(), e);
+                    }
+                });
+    }
+
+    private static class Estimate {
+        private final Supplier<Long> counter;
+        private volatile long value;
+        private volatile Instant lastAccess = Instant.now();
+        private volatile Instant refreshedAt = Instant.now();
+
+        private Estimate(Supplier<Long> counter) {
+            this.counter = counter;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.moetawol.book.common;
+
+/**
+ * How the total of a paged list is computed.
+ */
+public enum TotalMode {
+    // Counted with a COUNT(*) query on every request
+    EXACT,
+    // Not computed, the page only tells whether a next page exists
+    NONE,
+    // Served from a cached count refreshed in the background
+    ESTIMATED
+}
@@ -0,0 +1,31 @@
+package com.moetawol.book.common;
+
+import org.springframework.util.DigestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Summary of the rows behind a list response, read with one aggregate query over an index.
+ * Adding, removing or modifying any of the rows changes it, so it can stand in for the list in an ETag.
+ * {@code lastRelatedModified} covers joined rows whose fields also appear in the response.
+ */
+public record VersionStamp(long count, LocalDateTime lastCreated, LocalDateTime lastModified, LocalDateTime lastRelatedModified) {
+
+    public VersionStamp(long count, LocalDateTime lastCreated, LocalDateTime lastModified) {
+        this(count, lastCreated, lastModified, null);
+    }
+
+    /**
+     * Strong ETag for this stamp and everything else that shapes the response (user, paging, flags).
+     */
+    public String eTag(Object... request) {
+        return toETag(count, lastCreated, lastModified, lastRelatedModified, Arrays.toString(request));
+    }
+
+    public static String toETag(Object... parts) {
+        return DigestUtils.md5DigestAsHex(Arrays.toString(parts).getBytes(UTF_8));
+    }
+}
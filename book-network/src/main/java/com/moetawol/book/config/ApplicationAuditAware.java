@@ -1,12 +1,12 @@
 package com.moetawol.book.config;
 
-import com.moetawol.book.user.User;
 import org.springframework.data.domain.AuditorAware;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.security.Principal;
 import java.util.Optional;
 
 public class ApplicationAuditAware implements AuditorAware<String> {
@@ -21,7 +21,7 @@ public class ApplicationAuditAware implements AuditorAware<String> {
             return Optional.empty();
         }
 
-         User userPrincipal = (User) authentication.getPrincipal();
+         Principal userPrincipal = (Principal) authentication.getPrincipal();
 
         return Optional.ofNullable(userPrincipal.getName());
     }
@@ -1,6 +1,9 @@
 package com.moetawol.book.config;
 
+import com.moetawol.book.security.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 //import org.springframework.data.domain.AuditorAware;
@@ -11,6 +14,7 @@ import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 //import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -18,6 +22,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 //import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 //import org.springframework.web.filter.CorsFilter;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 
@@ -26,12 +31,15 @@ import java.util.Collections;
 public class BeansConfig {
 
      private final UserDetailsService userDetailsService;
+     private final UserDetailsPasswordService userDetailsPasswordService;
 
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
+        // Re-hashes stored passwords with the configured strength after a successful login
+        authProvider.setUserDetailsPasswordService(userDetailsPasswordService);
         return authProvider;
     }
 
@@ -41,8 +49,17 @@ public class BeansConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();}
+    public PasswordEncoder passwordEncoder(
+            @Value("${application.security.password.bcrypt-strength:10}") int strength,
+            @Value("${application.security.password.pool-size:0}") int poolSize,
+            @Value("${application.security.password.queue-capacity:64}") int queueCapacity,
+            @Value("${application.security.password.max-wait:PT2S}") Duration maxWait,
+            MeterRegistry meterRegistry
+    ) {
+        // 0 means one hashing thread per available core
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), threads, queueCapacity, maxWait, meterRegistry);
+    }
 
     @Bean
         public AuditorAware<String> auditorAware () {
@@ -0,0 +1,35 @@
+package com.moetawol.book.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Logs which thread model serves requests and @Scheduled work.
+ * Spring Boot silently falls back to platform threads when virtual threads are requested on a JVM older than 21.
+ */
+@Component
+@Slf4j
+public class ThreadingModeReporter {
+
+    private static final int VIRTUAL_THREADS_MIN_JAVA = 21;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsRequested;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reportThreadingMode() {
+        int javaVersion = Runtime.version().feature();
+        if (!virtualThreadsRequested) {
+            log.info("Requests and @Scheduled tasks run on platform thread pools");
+        } else if (javaVersion < VIRTUAL_THREADS_MIN_JAVA) {
+            log.warn("Virtual threads were requested but Java {} does not support them, falling back to platform thread pools",
+                    javaVersion);
+        } else {
+            // Shared state is guarded by ReentrantLock, which parks a virtual thread where synchronized would pin its carrier
+            log.info("Requests and @Scheduled tasks run on virtual threads (start with -Djdk.tracePinnedThreads=short to report pinning)");
+        }
+    }
+}
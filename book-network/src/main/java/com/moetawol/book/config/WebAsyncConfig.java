@@ -0,0 +1,57 @@
+package com.moetawol.book.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Runs the {@code StreamingResponseBody} downloads (streamed pages and exports) on their own executor. A download
+ * holds its thread for as long as the client reads, up to spring.mvc.async.request-timeout, so it must not take
+ * threads from the shared applicationTaskExecutor that runs @Async work.
+ * Not a bean: any Executor bean would replace Spring Boot's applicationTaskExecutor.
+ */
+@Configuration
+public class WebAsyncConfig implements WebMvcConfigurer, DisposableBean {
+
+    private static final int VIRTUAL_THREADS_MIN_JAVA = 21;
+
+    private final AsyncTaskExecutor streamingExecutor;
+
+    public WebAsyncConfig(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${application.streaming.pool-size:32}") int poolSize
+    ) {
+        if (virtualThreads && Runtime.version().feature() >= VIRTUAL_THREADS_MIN_JAVA) {
+            // A blocked download only parks its virtual thread; BookExportService still caps the exports
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("streaming-");
+            executor.setVirtualThreads(true);
+            this.streamingExecutor = executor;
+        } else {
+            // Downloads wait in the queue rather than being rejected once a response is already under way
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setThreadNamePrefix("streaming-");
+            executor.setCorePoolSize(poolSize);
+            executor.setMaxPoolSize(poolSize);
+            executor.initialize();
+            this.streamingExecutor = executor;
+        }
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // Runs after Spring Boot's configurer, which would otherwise hand the downloads to applicationTaskExecutor
+        configurer.setTaskExecutor(streamingExecutor);
+    }
+
+    @Override
+    public void destroy() {
+        if (streamingExecutor instanceof ThreadPoolTaskExecutor executor) {
+            executor.shutdown();
+        }
+    }
+}
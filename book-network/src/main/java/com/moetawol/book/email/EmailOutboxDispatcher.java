@@ -0,0 +1,186 @@
+package com.moetawol.book.email;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PostConstruct;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the email outbox in batches.
+ * Each batch goes through a single SMTP connection; failed emails are retried with exponential backoff
+ * and marked {@link EmailOutboxStatus#DEAD} once they run out of attempts.
+ * A batch is claimed, sent and recorded in three steps so that no transaction, row lock or pooled connection
+ * is held while the SMTP server answers. The claim commits a lease, the next attempt pushed back by claim-timeout,
+ * which keeps other instances off the batch until its results are written; a batch whose instance dies mid-send
+ * is sent again once the lease runs out.
+ */
+@Service
+@Slf4j
+public class EmailOutboxDispatcher {
+
+    private final EmailOutboxRepository outboxRepository;
+    private final EmailService emailService;
+    private final JavaMailSender mailSender;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${application.mailing.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${application.mailing.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${application.mailing.outbox.initial-backoff:PT30S}")
+    private Duration initialBackoff;
+
+    @Value("${application.mailing.outbox.max-backoff:PT1H}")
+    private Duration maxBackoff;
+
+    // Longer than sending a whole batch takes, or the batch may be claimed and sent again meanwhile
+    @Value("${application.mailing.outbox.claim-timeout:PT5M}")
+    private Duration claimTimeout;
+
+    private Counter sent;
+    private Counter failed;
+    private Counter dead;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    public EmailOutboxDispatcher(
+            EmailOutboxRepository outboxRepository,
+            EmailService emailService,
+            JavaMailSender mailSender,
+            MeterRegistry meterRegistry,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.outboxRepository = outboxRepository;
+        this.emailService = emailService;
+        this.mailSender = mailSender;
+        this.meterRegistry = meterRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        sent = meterRegistry.counter("email.outbox.sent");
+        failed = meterRegistry.counter("email.outbox.failed");
+        dead = meterRegistry.counter("email.outbox.dead");
+        Gauge.builder("email.outbox.pending", pending, AtomicLong::get).register(meterRegistry);
+        // Age of the oldest email still waiting to be delivered
+        TimeGauge.builder("email.outbox.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Scheduled(
+            initialDelayString = "${application.mailing.outbox.poll-interval:PT5S}",
+            fixedDelayString = "${application.mailing.outbox.poll-interval:PT5S}"
+    )
+    public void dispatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailOutboxMessage> batch = transactionTemplate.execute(status -> claim(now));
+        if (!batch.isEmpty()) {
+            deliver(batch, now);
+            // Merges the detached batch: under the lease no other instance has changed these rows
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.saveAll(batch));
+        }
+
+        pending.set(outboxRepository.countByStatus(EmailOutboxStatus.PENDING));
+        lagMillis.set(outboxRepository.findOldestPendingCreatedAt()
+                .map(oldest -> Duration.between(oldest, now).toMillis())
+                .orElse(0L));
+    }
+
+    private List<EmailOutboxMessage> claim(LocalDateTime now) {
+        List<EmailOutboxMessage> batch = outboxRepository.findDueMessages(now, PageRequest.of(0, batchSize));
+        batch.forEach(email -> email.setNextAttemptAt(now.plus(claimTimeout)));
+        return batch;
+    }
+
+    private void deliver(List<EmailOutboxMessage> batch, LocalDateTime now) {
+        // MimeMessage does not override equals, keep the lookup identity based explicitly
+        Map<MimeMessage, EmailOutboxMessage> prepared = new IdentityHashMap<>();
+        for (EmailOutboxMessage email : batch) {
+            try {
+                prepared.put(emailService.createMessage(email), email);
+            } catch (Exception e) {
+                markFailed(email, e, now);
+            }
+        }
+        if (prepared.isEmpty()) {
+            return;
+        }
+
+        Map<Object, Exception> failures = Map.of();
+        try {
+            mailSender.send(prepared.keySet().toArray(MimeMessage[]::new));
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages();
+            if (failures.isEmpty()) {
+                prepared.values().forEach(email -> markFailed(email, e, now));
+                return;
+            }
+        } catch (MailException e) {
+            // Connection or authentication problem: nothing in the batch was sent
+            prepared.values().forEach(email -> markFailed(email, e, now));
+            return;
+        }
+
+        for (Map.Entry<MimeMessage, EmailOutboxMessage> entry : prepared.entrySet()) {
+            Exception failure = failures.get(entry.getKey());
+            if (failure != null) {
+                markFailed(entry.getValue(), failure, now);
+            } else {
+                markSent(entry.getValue(), now);
+            }
+        }
+    }
+
+    private void markSent(EmailOutboxMessage email, LocalDateTime now) {
+        email.setStatus(EmailOutboxStatus.SENT);
+        email.setSentAt(now);
+        email.setLastError(null);
+        sent.increment();
+    }
+
+    private void markFailed(EmailOutboxMessage email, Exception cause, LocalDateTime now) {
+        int attempts = email.getAttempts() + 1;
+        email.setAttempts(attempts);
+        email.setLastError(StringUtils.abbreviate(cause.getMessage(), 1000));
+        failed.increment();
+
+        if (attempts >= maxAttempts) {
+            email.setStatus(EmailOutboxStatus.DEAD);
+            dead.increment();
+            log.error("Giving up on email {} to {} after {} attempts", email.getId(), email.getRecipient(), attempts, cause);
+            return;
+        }
+        email.setNextAttemptAt(now.plus(backoff(attempts)));
+        log.warn("Email {} to {} failed (attempt {}), retrying later: {}", email.getId(), email.getRecipient(), attempts, cause.getMessage());
+    }
+
+    // initialBackoff * 2^(attempts - 1), capped at maxBackoff
+    private Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 30));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+}
@@ -0,0 +1,59 @@
+package com.moetawol.book.email;
+
+import com.moetawol.book.common.TimeOrderedUuidGenerator;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.UuidGenerator;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An email waiting to be delivered.
+ * Written in the same transaction as the data it refers to (e.g. the activation {@code Token})
+ * and delivered later by {@link EmailOutboxDispatcher}.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "email_outbox", indexes = @Index(name = "idx_email_outbox_due", columnList = "status, nextAttemptAt"))
+public class EmailOutboxMessage {
+    @Id
+    @UuidGenerator(algorithm = TimeOrderedUuidGenerator.class)
+    @Column(nullable = false, updatable = false)
+    private UUID id;
+
+    @Column(nullable = false)
+    private String recipient;
+    private String username;
+    @Enumerated(EnumType.STRING)
+    private EmailTemplateName template;
+    private String confirmationUrl;
+    private String activationCode;
+    private String subject;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EmailOutboxStatus status;
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    @Column(length = 1000)
+    private String lastError;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    private LocalDateTime sentAt;
+}
@@ -0,0 +1,39 @@
+package com.moetawol.book.email;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, UUID> {
+
+    // Rows claimed by another instance are skipped instead of waited for (lock timeout -2 = SKIP LOCKED)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            SELECT message
+            FROM EmailOutboxMessage message
+            WHERE message.status = com.moetawol.book.email.EmailOutboxStatus.PENDING
+            AND message.nextAttemptAt <= :now
+            ORDER BY message.nextAttemptAt
+            """)
+    List<EmailOutboxMessage> findDueMessages(@Param("now") LocalDateTime now, Pageable limit);
+
+    long countByStatus(EmailOutboxStatus status);
+
+    @Query("""
+            SELECT MIN(message.createdAt)
+            FROM EmailOutboxMessage message
+            WHERE message.status = com.moetawol.book.email.EmailOutboxStatus.PENDING
+            """)
+    Optional<LocalDateTime> findOldestPendingCreatedAt();
+}
@@ -0,0 +1,8 @@
+package com.moetawol.book.email;
+
+public enum EmailOutboxStatus {
+    PENDING,
+    SENT,
+    // Gave up after application.mailing.outbox.max-attempts failures
+    DEAD
+}
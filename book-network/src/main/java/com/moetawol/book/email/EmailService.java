@@ -6,11 +6,10 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.context.Context;
-import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -23,9 +22,14 @@ import static org.springframework.mail.javamail.MimeMessageHelper.MULTIPART_MODE
 public class EmailService {
 
     private final JavaMailSender mailSender; // Injected Spring bean used to send emails
-    private final SpringTemplateEngine templateEngine; // Used to process Thymeleaf templates
-
-    @Async // Tells Spring to run this method asynchronously (in a separate thread)
+    private final EmailTemplateRegistry templateRegistry; // Renders the cached Thymeleaf templates
+    private final EmailOutboxRepository outboxRepository; // Stores emails until the dispatcher delivers them
+
+    /**
+     * Queues an email in the outbox; it commits or rolls back together with the caller's transaction.
+     * Delivery happens later in {@link EmailOutboxDispatcher}, so SMTP latency never reaches the request.
+     */
+    @Transactional
     public void sendEmail(
             String to, // recipient email address
             String username, // recipient's name to be used in email
@@ -33,14 +37,33 @@ public class EmailService {
             String confirmationUrl, // link for confirming email
             String activationCode, // optional activation code
             String subject // email subject line
-    ) throws MessagingException {
-
-        // Determine which template to use; default is "confirm-email"
-        String templateName;
-        if (emailTemplate == null) {
-            templateName = "confirm-email";
-        } else {
-            templateName = emailTemplate.getName();
+    ) {
+        LocalDateTime now = LocalDateTime.now();
+        outboxRepository.save(
+                EmailOutboxMessage.builder()
+                        .recipient(to)
+                        .username(username)
+                        .template(emailTemplate)
+                        .confirmationUrl(confirmationUrl)
+                        .activationCode(activationCode)
+                        .subject(subject)
+                        .status(EmailOutboxStatus.PENDING)
+                        .attempts(0)
+                        .nextAttemptAt(now) // due immediately
+                        .createdAt(now)
+                        .build()
+        );
+    }
+
+    /**
+     * Renders a queued email into a MIME message ready to be handed to the mail sender.
+     */
+    public MimeMessage createMessage(EmailOutboxMessage email) throws MessagingException {
+
+        // Determine which template to use; default is the account activation email
+        EmailTemplateName template = email.getTemplate();
+        if (template == null) {
+            template = EmailTemplateName.ACTIVATE_ACCOUNT;
         }
 
         // Create a new email message
@@ -55,30 +78,25 @@ public class EmailService {
 
         // Create variables to inject into the Thymeleaf template
         Map<String, Object> properties = new HashMap<>();
-        properties.put("username", username);
-        properties.put("confirmationUrl", confirmationUrl);
-        properties.put("activation_code", activationCode);
-
-        // Prepare Thymeleaf context with variables
-        Context context = new Context();
-        context.setVariables(properties);
+        properties.put("username", email.getUsername());
+        properties.put("confirmationUrl", email.getConfirmationUrl());
+        properties.put("activation_code", email.getActivationCode());
 
         // Set sender email address
         helper.setFrom("contact@clickers.com");
 
         // Set recipient
-        helper.setTo(to);
+        helper.setTo(email.getRecipient());
 
         // Set subject line
-        helper.setSubject(subject);
+        helper.setSubject(email.getSubject());
 
-        // Process the HTML template (Thymeleaf) with injected variables
-        String template = templateEngine.process("activate_account", context);
+        // Render the cached HTML template with injected variables
+        String body = templateRegistry.render(template, properties);
 
         // Set the body of the email to the processed HTML
-        helper.setText(template, true); // true = HTML content
+        helper.setText(body, true); // true = HTML content
 
-        // Send the email
-        mailSender.send(mimeMessage);
+        return mimeMessage;
     }
 }
@@ -0,0 +1,67 @@
+package com.moetawol.book.email;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import org.thymeleaf.util.FastStringWriter;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Renders the email templates listed in {@link EmailTemplateName}.
+ * Uses its own engine so templates are parsed once and kept cached whatever {@code spring.thymeleaf.cache} is set to;
+ * the static markup is stored as pre-parsed text and written as is, only the expressions are evaluated per message.
+ */
+@Service
+@Slf4j
+public class EmailTemplateRegistry {
+
+    private final SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+
+    // Size of the last render per template, used to pre-size the output buffer
+    private final Map<EmailTemplateName, Integer> renderedSizes = new ConcurrentHashMap<>();
+
+    public EmailTemplateRegistry() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding(UTF_8.name());
+        resolver.setCacheable(true);
+        resolver.setCacheTTLMs(null); // never expire, templates ship with the jar
+        templateEngine.setTemplateResolver(resolver);
+        // Compiles the SpEL expressions to bytecode after their first evaluation
+        templateEngine.setEnableSpringELCompiler(true);
+    }
+
+    // Parses every template at startup so a missing or broken template fails fast, not on the first email
+    @PostConstruct
+    void warmUp() {
+        for (EmailTemplateName template : EmailTemplateName.values()) {
+            render(template, Map.of());
+        }
+        log.info("Email templates parsed and cached: {}", renderedSizes.keySet());
+    }
+
+    public String render(EmailTemplateName template, Map<String, Object> variables) {
+        // Unsynchronized, unlike StringWriter, whose StringBuffer locks on every write
+        FastStringWriter writer = new FastStringWriter(expectedSize(template));
+        templateEngine.process(template.getName(), new Context(Locale.getDefault(), variables), writer);
+        String rendered = writer.toString();
+        renderedSizes.put(template, rendered.length());
+        return rendered;
+    }
+
+    private int expectedSize(EmailTemplateName template) {
+        // Leaves room for the variables, which are usually longer than in the previous message
+        return renderedSizes.getOrDefault(template, 1024) + 256;
+    }
+}
@@ -0,0 +1,7 @@
+package com.moetawol.book.exception;
+
+public class ExportRejectedException extends RuntimeException {
+    public ExportRejectedException(String message) {
+        super(message);
+    }
+}
@@ -1,11 +1,13 @@
 package com.moetawol.book.feedback;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 public interface FeedBackRepository extends JpaRepository<Feedback, UUID> {
@@ -14,5 +16,17 @@ public interface FeedBackRepository extends JpaRepository<Feedback, UUID> {
             FROM Feedback  feedback
             WHERE feedback.book.id = :bookId
 """)
-    Page<Feedback> findAllByBookId(@Param("bookId") UUID bookId, Pageable pageable);
+    Slice<Feedback> findAllByBookId(@Param("bookId") UUID bookId, Pageable pageable);
+
+    long countByBookId(UUID bookId);
+
+    @Query("""
+            SELECT feedback
+            FROM Feedback feedback
+            WHERE feedback.book.id = :bookId
+            AND (feedback.createdDate < :createdDate
+                OR (feedback.createdDate = :createdDate AND feedback.id < :id))
+            ORDER BY feedback.createdDate DESC, feedback.id DESC
+            """)
+    List<Feedback> findAllByBookIdAfter(UUID bookId, LocalDateTime createdDate, UUID id, Pageable limit);
 }
@@ -4,6 +4,7 @@ import com.moetawol.book.book.Book;
 import com.moetawol.book.common.BaseEntity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import lombok.AllArgsConstructor;
@@ -23,7 +24,7 @@ public class Feedback extends BaseEntity {
     @Column
     private Double note;
     private String comment;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "book_id")
     private Book book;
 }
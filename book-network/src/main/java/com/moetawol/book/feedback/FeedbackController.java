@@ -1,6 +1,7 @@
 package com.moetawol.book.feedback;
 
 import com.moetawol.book.common.PageResponse;
+import com.moetawol.book.common.TotalMode;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -37,8 +38,10 @@ public class FeedbackController {
             @PathVariable("book-id") UUID bookId,
             @RequestParam(name = "page", defaultValue = "0", required = false) int page,
             @RequestParam(name = "size", defaultValue = "10", required = false) int size,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "total", defaultValue = "EXACT", required = false) TotalMode total,
             Authentication connectedUser
     ) {
-        return ResponseEntity.ok(service.findAllFeedbacksByBook(bookId, page, size, connectedUser));
+        return ResponseEntity.ok(service.findAllFeedbacksByBook(bookId, page, size, cursor, total, connectedUser));
     }
 }
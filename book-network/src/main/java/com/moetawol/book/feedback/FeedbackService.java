@@ -1,15 +1,19 @@
 package com.moetawol.book.feedback;
 
 import com.moetawol.book.book.Book;
+import com.moetawol.book.book.BookRatingService;
 import com.moetawol.book.book.BookRepository;
+import com.moetawol.book.common.PageCursor;
 import com.moetawol.book.common.PageResponse;
+import com.moetawol.book.common.TotalCountEstimator;
+import com.moetawol.book.common.TotalMode;
 import com.moetawol.book.exception.OperationNotPermittedException;
-import com.moetawol.book.user.User;
+import com.moetawol.book.security.AuthenticatedUser;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -25,14 +29,17 @@ public class FeedbackService {
     private final FeedBackRepository feedBackRepository;
     private final BookRepository bookRepository;
     private final FeedbackMapper feedbackMapper;
+    private final BookRatingService bookRatingService;
+    private final TotalCountEstimator countEstimator;
 
+    @Transactional
     public UUID save(FeedbackRequest request, Authentication connectedUser) {
         Book book = bookRepository.findById(request.bookId())
                 .orElseThrow(() -> new EntityNotFoundException("No book found with ID:: " + request.bookId()));
         if (book.isArchived() || !book.isShareable()) {
             throw new OperationNotPermittedException("You cannot give a feedback for and archived or not shareable book");
         }
-         User user = ((User) connectedUser.getPrincipal());
+         AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
         /*        if (Objects.equals(book.getCreatedBy(), connectedUser.getName())) {
 //            throw new OperationNotPermittedException("You cannot give feedback to your own book");
 //        } */
@@ -40,26 +47,26 @@ public class FeedbackService {
             throw new OperationNotPermittedException("You cannot give feedback to your own book");
         }
         Feedback feedback = feedbackMapper.toFeedback(request);
-        return feedBackRepository.save(feedback).getId();
+        UUID feedbackId = feedBackRepository.save(feedback).getId();
+        if (request.note() != null) {
+            bookRatingService.addRating(book.getId(), request.note());
+        }
+        return feedbackId;
     }
 
     @Transactional
-    public PageResponse<FeedbackResponse> findAllFeedbacksByBook(UUID bookId, int page, int size, Authentication connectedUser) {
+    public PageResponse<FeedbackResponse> findAllFeedbacksByBook(UUID bookId, int page, int size, String cursor, TotalMode total, Authentication connectedUser) {
         Pageable pageable = PageRequest.of(page, size);
-        User user = ((User) connectedUser.getPrincipal());
-        Page<Feedback> feedbacks = feedBackRepository.findAllByBookId(bookId, pageable);
-        List<FeedbackResponse> feedbackResponses = feedbacks.stream()
-                .map(f -> feedbackMapper.toFeedbackResponse(f, user.getId()))
-                .toList();
-        return new PageResponse<>(
-                feedbackResponses,
-                feedbacks.getNumber(),
-                feedbacks.getSize(),
-                feedbacks.getTotalElements(),
-                feedbacks.getTotalPages(),
-                feedbacks.isFirst(),
-                feedbacks.isLast()
-        );
+        AuthenticatedUser user = ((AuthenticatedUser) connectedUser.getPrincipal());
+        if (cursor != null) {
+            PageCursor after = PageCursor.decode(cursor);
+            List<Feedback> feedbacks = feedBackRepository.findAllByBookIdAfter(bookId, after.createdDate(), after.id(), PageCursor.limit(size));
+            return PageResponse.ofCursor(feedbacks, size, after == PageCursor.START, f -> feedbackMapper.toFeedbackResponse(f, user.getId()));
+        }
+        Slice<Feedback> feedbacks = feedBackRepository.findAllByBookId(bookId, pageable);
+        long totalElements = countEstimator.count(total, "book-feedbacks:" + bookId,
+                () -> feedBackRepository.countByBookId(bookId));
+        return PageResponse.of(feedbacks, f -> feedbackMapper.toFeedbackResponse(f, user.getId()), total, totalElements);
 
     }
 }
@@ -0,0 +1,221 @@
+package com.moetawol.book.file;
+
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Size-bounded LRU cache of cover images kept in direct (off-heap) buffers,
+ * so hot covers are served from memory without adding to GC pressure.
+ * Entries are keyed by file path and checked against the content hash stored on the book.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CoverCache {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${application.file.cover-cache.max-size-bytes:67108864}")
+    private long maxSizeBytes;
+
+    // Covers bigger than this are always streamed from disk
+    @Value("${application.file.cover-cache.max-entry-bytes:2097152}")
+    private long maxEntryBytes;
+
+    // Access-ordered map: iteration starts with the least recently used entry
+    private final LinkedHashMap<String, CachedCover> entries = new LinkedHashMap<>(128, 0.75f, true);
+    private long currentSizeBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @PostConstruct
+    void registerMetrics() {
+        FunctionCounter.builder("book.cover.cache.hits", hits, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("book.cover.cache.misses", misses, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("book.cover.cache.evictions", evictions, LongAdder::sum).register(meterRegistry);
+        Gauge.builder("book.cover.cache.size", this, CoverCache::currentSizeBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cover as a streamable resource, served from memory when possible.
+     * Falls back to the file on disk when the cover is too large to be cached.
+     */
+    public Resource getResource(String fileUrl, String contentHash) {
+        ByteBuffer buffer = get(fileUrl, contentHash);
+        if (buffer == null) {
+            return FileUtils.loadFileAsResource(fileUrl);
+        }
+        return new CachedCoverResource(fileUrl, buffer);
+    }
+
+    /**
+     * Returns a copy of the cover bytes, for callers that need them inline.
+     */
+    public byte[] getBytes(String fileUrl, String contentHash) {
+        ByteBuffer buffer = get(fileUrl, contentHash);
+        if (buffer == null) {
+            return FileUtils.readFileFromLocation(fileUrl);
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    public void invalidate(String fileUrl) {
+        if (StringUtils.isBlank(fileUrl)) {
+            return;
+        }
+        lock.lock();
+        try {
+            CachedCover removed = entries.remove(fileUrl);
+            if (removed != null) {
+                currentSizeBytes -= removed.size();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long currentSizeBytes() {
+        lock.lock();
+        try {
+            return currentSizeBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns a read-only view of the cached buffer, or null if the cover cannot be cached
+    private ByteBuffer get(String fileUrl, String contentHash) {
+        if (StringUtils.isBlank(fileUrl)) {
+            return null;
+        }
+        lock.lock();
+        try {
+            CachedCover cached = entries.get(fileUrl);
+            if (cached != null && Objects.equals(cached.contentHash(), contentHash)) {
+                hits.increment();
+                return cached.buffer().asReadOnlyBuffer();
+            }
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+
+        // Read outside the lock so a slow disk does not block hits on other covers
+        ByteBuffer loaded = load(fileUrl);
+        if (loaded == null) {
+            return null;
+        }
+        put(fileUrl, new CachedCover(contentHash, loaded));
+        return loaded.asReadOnlyBuffer();
+    }
+
+    private ByteBuffer load(String fileUrl) {
+        try (FileChannel channel = FileChannel.open(Path.of(fileUrl), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > maxEntryBytes || size > maxSizeBytes) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the buffer is full or the file ends
+            }
+            return buffer.flip();
+        } catch (IOException e) {
+            log.warn("No file found in the path {}", fileUrl);
+        }
+        return null;
+    }
+
+    private void put(String fileUrl, CachedCover cover) {
+        lock.lock();
+        try {
+            CachedCover previous = entries.put(fileUrl, cover);
+            if (previous != null) {
+                currentSizeBytes -= previous.size();
+            }
+            currentSizeBytes += cover.size();
+
+            var iterator = entries.entrySet().iterator();
+            while (currentSizeBytes > maxSizeBytes && iterator.hasNext()) {
+                Map.Entry<String, CachedCover> eldest = iterator.next();
+                iterator.remove();
+                currentSizeBytes -= eldest.getValue().size();
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record CachedCover(String contentHash, ByteBuffer buffer) {
+        long size() {
+            return buffer.capacity();
+        }
+    }
+
+    private static class CachedCoverResource extends AbstractResource {
+
+        private final String fileUrl;
+        private final ByteBuffer buffer;
+
+        private CachedCoverResource(String fileUrl, ByteBuffer buffer) {
+            this.fileUrl = fileUrl;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            // Each reader gets its own position over the shared off-heap buffer
+            return new ByteBufferBackedInputStream(buffer.duplicate());
+        }
+
+        @Override
+        public long contentLength() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public boolean isReadable() {
+            return true;
+        }
+
+        @Override
+        public String getFilename() {
+            return Path.of(fileUrl).getFileName().toString();
+        }
+
+        @Override
+        public String getDescription() {
+            return "Cached cover [" + fileUrl + "]";
+        }
+    }
+}
@@ -6,11 +6,20 @@ import lombok.extern.slf4j.Slf4j;
 // Import for string utility methods
 import org.apache.commons.lang3.StringUtils;
 
+// Spring resource abstraction used to stream files without loading them on the heap
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
 // Java standard classes for working with files
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 
 // Lombok annotation to enable SLF4J logging
 @Slf4j
@@ -39,4 +48,33 @@ public class FileUtils {
         // If reading the file fails or the path is invalid, return null
         return null;
     }
+
+    // Returns a streamable resource for the given path, or null if the file is missing or unreadable
+    public static Resource loadFileAsResource(String fileUrl) {
+        if (StringUtils.isBlank(fileUrl)) {
+            return null;
+        }
+
+        Resource resource = new FileSystemResource(fileUrl);
+        if (!resource.isReadable()) {
+            log.warn("No file found in the path {}", fileUrl);
+            return null;
+        }
+        return resource;
+    }
+
+    // Computes a hex SHA-256 of the file content, streaming it so the whole file never sits on the heap
+    public static String computeContentHash(String fileUrl) {
+        if (StringUtils.isBlank(fileUrl)) {
+            return null;
+        }
+
+        try (var in = new DigestInputStream(Files.newInputStream(Path.of(fileUrl)), MessageDigest.getInstance("SHA-256"))) {
+            in.transferTo(OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(in.getMessageDigest().digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            log.warn("Could not compute the content hash of {}", fileUrl);
+        }
+        return null;
+    }
 }
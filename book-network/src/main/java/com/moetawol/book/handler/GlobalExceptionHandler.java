@@ -1,8 +1,12 @@
 package com.moetawol.book.handler;
 
 import com.moetawol.book.exception.ActivationTokenException;
+import com.moetawol.book.exception.ExportRejectedException;
+import com.moetawol.book.exception.InvalidPageCursorException;
 import com.moetawol.book.exception.OperationNotPermittedException;
+import com.moetawol.book.exception.PasswordHashingRejectedException;
 import jakarta.mail.MessagingException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.DisabledException;
@@ -16,7 +20,9 @@ import java.util.Set;
 
 import static com.moetawol.book.handler.BusinessErrorCodes.ACCOUNT_DISABLED;
 import static com.moetawol.book.handler.BusinessErrorCodes.ACCOUNT_LOCKED;
+import static com.moetawol.book.handler.BusinessErrorCodes.AUTHENTICATION_OVERLOADED;
 import static com.moetawol.book.handler.BusinessErrorCodes.BAD_CREDENTIALS;
+import static com.moetawol.book.handler.BusinessErrorCodes.EXPORTS_OVERLOADED;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static org.springframework.http.HttpStatus.UNAUTHORIZED;
@@ -64,6 +70,34 @@ public class GlobalExceptionHandler {
                 );
     }
 
+    @ExceptionHandler(PasswordHashingRejectedException.class)
+    public ResponseEntity<ExceptionResponse> handleException(PasswordHashingRejectedException exp) {
+        return ResponseEntity
+                .status(AUTHENTICATION_OVERLOADED.getHttpStatus())
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(
+                        ExceptionResponse.builder()
+                                .businessErrorCode(AUTHENTICATION_OVERLOADED.getCode())
+                                .businessErrorDescription(AUTHENTICATION_OVERLOADED.getDescription())
+                                .error(exp.getMessage())
+                                .build()
+                );
+    }
+
+    @ExceptionHandler(ExportRejectedException.class)
+    public ResponseEntity<ExceptionResponse> handleException(ExportRejectedException exp) {
+        return ResponseEntity
+                .status(EXPORTS_OVERLOADED.getHttpStatus())
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body(
+                        ExceptionResponse.builder()
+                                .businessErrorCode(EXPORTS_OVERLOADED.getCode())
+                                .businessErrorDescription(EXPORTS_OVERLOADED.getDescription())
+                                .error(exp.getMessage())
+                                .build()
+                );
+    }
+
     @ExceptionHandler(MessagingException.class)
     public ResponseEntity<ExceptionResponse> handleException(MessagingException exp) {
         return ResponseEntity
@@ -97,6 +131,17 @@ public class GlobalExceptionHandler {
                 );
     }
 
+    @ExceptionHandler(InvalidPageCursorException.class)
+    public ResponseEntity<ExceptionResponse> handleException(InvalidPageCursorException exp) {
+        return ResponseEntity
+                .status(BAD_REQUEST)
+                .body(
+                        ExceptionResponse.builder()
+                                .error(exp.getMessage())
+                                .build()
+                );
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ExceptionResponse> handleMethodArgumentNotValidException(MethodArgumentNotValidException exp) {
         Set<String> errors = new HashSet<>();
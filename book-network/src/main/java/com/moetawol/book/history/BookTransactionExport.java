@@ -0,0 +1,24 @@
+package com.moetawol.book.history;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One borrowing of a lending history export, seen from the exporting user: {@code BORROWER} when they
+ * borrowed the book, {@code OWNER} when they lent it.
+ */
+public record BookTransactionExport(
+        UUID id,
+        String role,
+        UUID bookId,
+        String title,
+        String authorName,
+        String isbn,
+        String owner,
+        String borrower,
+        boolean returned,
+        boolean returnApproved,
+        LocalDateTime createdDate,
+        LocalDateTime lastModifiedDate
+) {
+}
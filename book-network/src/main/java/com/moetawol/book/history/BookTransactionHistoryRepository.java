@@ -1,64 +1,133 @@
 package com.moetawol.book.history;
 
-import org.springframework.data.domain.Page;
+import com.moetawol.book.common.VersionStamp;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface BookTransactionHistoryRepository extends JpaRepository<BookTransactionHistory, UUID> {
-    @Query("""
-            SELECT
-            (COUNT (*) > 0) AS isBorrowed
-            FROM BookTransactionHistory bookTransactionHistory
-            WHERE bookTransactionHistory.user = :userId
-            AND bookTransactionHistory.book.id = :bookId
-            AND bookTransactionHistory.returnApproved = false
-            """)
-    boolean isAlreadyBorrowedByUser(@Param("bookId") UUID bookId, @Param("userId") String userId);
-
-    @Query("""
-            SELECT
-            (COUNT (*) > 0) AS isBorrowed
-            FROM BookTransactionHistory bookTransactionHistory
-            WHERE bookTransactionHistory.book.id = :bookId
-            AND bookTransactionHistory.returnApproved = false
-            """)
-    boolean isAlreadyBorrowed(@Param("bookId") UUID bookId);
-
     @Query("""
             SELECT transaction
             FROM BookTransactionHistory  transaction
-            WHERE transaction.user = :userId
+            WHERE transaction.user.id = :userId
             AND transaction.book.id = :bookId
             AND transaction.returned = false
             AND transaction.returnApproved = false
             """)
-    Optional<BookTransactionHistory> findByBookIdAndUserId(@Param("bookId") UUID bookId, @Param("userId") String userId);
+    Optional<BookTransactionHistory> findByBookIdAndUserId(@Param("bookId") UUID bookId, @Param("userId") UUID userId);
 
     @Query("""
             SELECT transaction
             FROM BookTransactionHistory  transaction
-            WHERE transaction.book.createdBy = :userId
+            WHERE transaction.book.owner.id = :userId
             AND transaction.book.id = :bookId
             AND transaction.returned = true
             AND transaction.returnApproved = false
             """)
-    Optional<BookTransactionHistory> findByBookIdAndOwnerId(@Param("bookId") UUID bookId, @Param("userId") String userId);
+    Optional<BookTransactionHistory> findByBookIdAndOwnerId(@Param("bookId") UUID bookId, @Param("userId") UUID userId);
 
+    @EntityGraph(attributePaths = "book")
     @Query("""
             SELECT history
             FROM BookTransactionHistory history
-            WHERE history.user = :userId
+            WHERE history.user.id = :userId
             """)
-    Page<BookTransactionHistory> findAllBorrowedBooks(Pageable pageable, UUID  userId);
+    Slice<BookTransactionHistory> findAllBorrowedBooks(Pageable pageable, UUID  userId);
+
+    // The book's own changes (title, rate, ...) show up in the borrowed list too
+    @Query("""
+            SELECT new com.moetawol.book.common.VersionStamp(
+                COUNT(history), MAX(history.createdDate), MAX(history.lastModifiedDate), MAX(book.lastModifiedDate))
+            FROM BookTransactionHistory history
+            JOIN history.book book
+            WHERE history.user.id = :userId
+            """)
+    VersionStamp findBorrowedBooksVersion(UUID userId);
+
+    @Query("""
+            SELECT COUNT(history)
+            FROM BookTransactionHistory history
+            WHERE history.user.id = :userId
+            """)
+    long countAllBorrowedBooks(UUID userId);
+
+    @EntityGraph(attributePaths = "book")
     @Query("""
             SELECT history
             FROM BookTransactionHistory history
-            WHERE history.book.createdBy = :userId
+            WHERE history.user.id = :userId
+            AND (history.createdDate < :createdDate
+                OR (history.createdDate = :createdDate AND history.id < :id))
+            ORDER BY history.createdDate DESC, history.id DESC
+            """)
+    List<BookTransactionHistory> findAllBorrowedBooksAfter(UUID userId, LocalDateTime createdDate, UUID id, Pageable limit);
+
+    // Read through a forward-only cursor by BookExportService, like BookRepository#streamExportByOwner
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+            SELECT new com.moetawol.book.history.BookTransactionExport(
+                history.id, 'BORROWER', book.id, book.title, book.authorName, book.isbn,
+                CONCAT(owner.firstname, ' ', owner.lastname), CONCAT(borrower.firstname, ' ', borrower.lastname),
+                history.returned, history.returnApproved, history.createdDate, history.lastModifiedDate)
+            FROM BookTransactionHistory history
+            JOIN history.book book
+            JOIN book.owner owner
+            JOIN history.user borrower
+            WHERE borrower.id = :userId
+            ORDER BY history.createdDate DESC, history.id DESC
+            """)
+    Stream<BookTransactionExport> streamBorrowedExport(UUID userId);
+
+    @EntityGraph(attributePaths = "book")
+    @Query("""
+            SELECT history
+            FROM BookTransactionHistory history
+            WHERE history.book.owner.id = :userId
+            """)
+    Slice<BookTransactionHistory> findAllReturnedBooks(Pageable pageable, UUID userId);
+
+    @Query("""
+            SELECT COUNT(history)
+            FROM BookTransactionHistory history
+            WHERE history.book.owner.id = :userId
+            """)
+    long countAllReturnedBooks(UUID userId);
+
+    @EntityGraph(attributePaths = "book")
+    @Query("""
+            SELECT history
+            FROM BookTransactionHistory history
+            WHERE history.book.owner.id = :userId
+            AND (history.createdDate < :createdDate
+                OR (history.createdDate = :createdDate AND history.id < :id))
+            ORDER BY history.createdDate DESC, history.id DESC
+            """)
+    List<BookTransactionHistory> findAllReturnedBooksAfter(UUID userId, LocalDateTime createdDate, UUID id, Pageable limit);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+            SELECT new com.moetawol.book.history.BookTransactionExport(
+                history.id, 'OWNER', book.id, book.title, book.authorName, book.isbn,
+                CONCAT(owner.firstname, ' ', owner.lastname), CONCAT(borrower.firstname, ' ', borrower.lastname),
+                history.returned, history.returnApproved, history.createdDate, history.lastModifiedDate)
+            FROM BookTransactionHistory history
+            JOIN history.book book
+            JOIN book.owner owner
+            JOIN history.user borrower
+            WHERE owner.id = :userId
+            ORDER BY history.createdDate DESC, history.id DESC
             """)
-    Page<BookTransactionHistory> findAllReturnedBooks(Pageable pageable, UUID userId);
+    Stream<BookTransactionExport> streamLentExport(UUID userId);
 }
@@ -1,5 +1,6 @@
 package com.moetawol.book.role;
 
+import com.moetawol.book.common.TimeOrderedUuidGenerator;
 import com.moetawol.book.user.User;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
@@ -9,6 +10,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UuidGenerator;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import java.time.LocalDateTime;
@@ -26,7 +28,7 @@ import java.util.UUID;
 public class Role {
 
     @Id
-    @GeneratedValue(generator = "UUID")
+    @UuidGenerator(algorithm = TimeOrderedUuidGenerator.class)
     private UUID id;
     @Column(unique = true)
     private String name;
@@ -0,0 +1,90 @@
+package com.moetawol.book.security;
+
+import com.moetawol.book.user.User;
+import io.jsonwebtoken.Claims;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Lightweight principal of an authenticated request.
+ * Built from the verified JWT claims and the cached account state, so no entity is loaded per request.
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class AuthenticatedUser implements UserDetails, Principal {
+
+    public static final String USER_ID_CLAIM = "userId";
+    public static final String FULL_NAME_CLAIM = "fullName";
+
+    private final UUID id;
+    private final String email;
+    private final String fullName;
+    private final List<GrantedAuthority> authorities;
+    private final boolean enabled;
+    private final boolean accountLocked;
+
+    public static AuthenticatedUser from(User user) {
+        return AuthenticatedUser.builder()
+                .id(user.getId())
+                .email(user.getEmail())
+                .fullName(user.getFullName())
+                .authorities(user.getRoles()
+                        .stream()
+                        .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role.getName()))
+                        .toList())
+                .enabled(user.isEnabled())
+                .accountLocked(user.isAccountLocked())
+                .build();
+    }
+
+    /**
+     * Takes the identity from the token and the authorities and status from the account,
+     * so role changes, locks and deactivations apply without waiting for the token to expire.
+     */
+    public static AuthenticatedUser fromClaims(Claims claims, AuthenticatedUser account) {
+        String userId = claims.get(USER_ID_CLAIM, String.class);
+        String fullName = claims.get(FULL_NAME_CLAIM, String.class);
+        return AuthenticatedUser.builder()
+                .id(userId != null ? UUID.fromString(userId) : account.getId())
+                .email(claims.getSubject())
+                .fullName(fullName != null ? fullName : account.getFullName())
+                .authorities(account.getAuthorities())
+                .enabled(account.isEnabled())
+                .accountLocked(account.isAccountLocked())
+                .build();
+    }
+
+    @Override
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return !accountLocked;
+    }
+}
@@ -1,5 +1,6 @@
 package com.moetawol.book.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,13 +9,12 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 // This filter intercepts every HTTP request once and processes JWT authentication if applicable.
 @Service
@@ -24,8 +24,8 @@ public class JwtFilter extends OncePerRequestFilter {
     // Inject the JwtService to extract and validate tokens.
     private final JwtService jwtService;
 
-    // Inject the UserDetailsService to load user data from the DB or another source.
-    private final UserDetailsService userDetailsService;
+    // Short-lived account cache, so the user is not loaded from the DB on every request.
+    private final UserPrincipalCache userPrincipalCache;
 
     @Override
     protected void doFilterInternal(
@@ -53,21 +53,23 @@ public class JwtFilter extends OncePerRequestFilter {
         // 4. Extract JWT token from the header (remove Bearer)
         jwt = authHeader.substring(7);
 
-        // 5. Extract username (email) from JWT token
-        userEmail = jwtService.extractUsername(jwt);
+        // 5. Verify the token once and extract username (email) from its claims
+        final Claims claims = jwtService.extractValidClaims(jwt);
+        userEmail = claims.getSubject();
 
         // 6. If userEmail is valid and there's no authentication set in the context yet
         if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            // 7. Load the user details from the database or configured user store
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+            // 7. Look up the account state (roles, enabled, locked) in the short-lived cache
+            Optional<AuthenticatedUser> account = userPrincipalCache.findByEmail(userEmail);
 
-            // 8. Check if the token is valid for this user
-            if (jwtService.isTokenValid(jwt, userDetails)) {
-                // 9. Create authentication object with user details and roles
+            // 8. Check the account still exists and is allowed to sign in
+            if (account.isPresent() && account.get().isEnabled() && account.get().isAccountNonLocked()) {
+                // 9. Create authentication object with a principal built from the token claims
+                AuthenticatedUser principal = AuthenticatedUser.fromClaims(claims, account.get());
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
+                        principal,
                         null,
-                        userDetails.getAuthorities()
+                        principal.getAuthorities()
                 );
 
                 // 10. Attach request-specific details (like IP, session, etc.)
@@ -1,18 +1,26 @@
 package com.moetawol.book.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 
  @Service
@@ -23,7 +31,26 @@ public class JwtService {
      @Value("${application.security.jwt.expiration-time}")
      private long jwtExpiration;
 
+     // Upper bound of verified tokens kept in memory
+     @Value("${application.security.jwt.claims-cache-size:10000}")
+     private int claimsCacheSize;
 
+     // Built once at startup instead of decoding the secret for every token
+     private Key signInKey;
+     private JwtParser jwtParser;
+
+     // Access-ordered map of token digest -> verified claims, evicted on expiry or when full
+     private final LinkedHashMap<String, Claims> verifiedClaims = new LinkedHashMap<>(256, 0.75f, true);
+     private final ReentrantLock claimsLock = new ReentrantLock();
+
+     @PostConstruct
+     void init() {
+         byte[] keyBytes = Decoders.BASE64.decode(secretKey);
+         signInKey = Keys.hmacShaKeyFor(keyBytes);
+         jwtParser = Jwts.parserBuilder()
+                 .setSigningKey(signInKey)
+                 .build();
+     }
 
      public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -61,34 +88,83 @@ public class JwtService {
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
                 .claim("authorities", authorities)
-                .signWith(getSignInKey())
+                .signWith(signInKey)
                 .compact();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return isTokenValid(extractAllClaims(token), userDetails);
+    }
+
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        final String username = claims.getSubject();
+        return (username.equals(userDetails.getUsername())) && !isTokenExpired(claims);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    /**
+     * Verifies the token once and returns its claims.
+     * Tokens already verified are served from memory until they expire, so repeated requests skip the HMAC check.
+     *
+     * @throws io.jsonwebtoken.JwtException if the signature is invalid or the token has expired
+     */
+    public Claims extractValidClaims(String token) {
+        final String digest = digest(token);
+        claimsLock.lock();
+        try {
+            Claims cached = verifiedClaims.get(digest);
+            if (cached != null) {
+                if (!isTokenExpired(cached)) {
+                    return cached;
+                }
+                verifiedClaims.remove(digest);
+            }
+        } finally {
+            claimsLock.unlock();
+        }
+
+        // The parser rejects expired tokens and bad signatures
+        Claims claims = extractAllClaims(token);
+        if (claims.getExpiration() != null) {
+            claimsLock.lock();
+            try {
+                verifiedClaims.put(digest, claims);
+                evictVerifiedClaims();
+            } finally {
+                claimsLock.unlock();
+            }
+        }
+        return claims;
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private void evictVerifiedClaims() {
+        if (verifiedClaims.size() <= claimsCacheSize) {
+            return;
+        }
+        verifiedClaims.values().removeIf(this::isTokenExpired);
+        var iterator = verifiedClaims.values().iterator();
+        while (verifiedClaims.size() > claimsCacheSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    // The cache is keyed by a digest so raw tokens are not kept in memory
+    private static String digest(String token) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(messageDigest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 }
@@ -1,5 +1,6 @@
 package com.moetawol.book.security;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -50,6 +51,8 @@ public class SecurityConfig {
                                         "/webjars/**",
                                         "/swagger-ui.html"
                                 ).permitAll() // Allow access without authentication
+                                // Completes streamed responses; the request was authorized before the async work started
+                                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                                 .anyRequest()
                                 .authenticated() // All other endpoints require authentication
                 )
@@ -1,8 +1,10 @@
 package com.moetawol.book.security;
 
+import com.moetawol.book.user.User;
 import com.moetawol.book.user.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -10,7 +12,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 @Service // Marks this class as a Spring Service Component (automatically registered as a bean)
 @RequiredArgsConstructor // Generates a constructor for the final field 'repository'
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     // 1. Inject UserRepository to fetch user details from the database
     private final UserRepository repository;
@@ -24,4 +26,13 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         return repository.findByEmail(userEmail)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
+
+    @Override
+    @Transactional // Called after a successful login when the stored hash uses an outdated strength
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = repository.findByEmail(userDetails.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        user.setPassword(newPassword);
+        return repository.save(user);
+    }
 }
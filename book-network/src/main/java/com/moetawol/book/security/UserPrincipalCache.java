@@ -0,0 +1,83 @@
+package com.moetawol.book.security;
+
+import com.moetawol.book.user.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Short-lived cache of account state (id, roles, enabled, locked) keyed by email.
+ * Lets JwtFilter authenticate requests without a database round trip; call {@link #invalidate(String)}
+ * whenever an account is locked, disabled, enabled or its roles change.
+ * A hit runs outside any transaction and takes no connection; only a miss opens a read-only one to load the account.
+ */
+@Service
+public class UserPrincipalCache {
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Value("${application.security.user-cache.ttl:PT1M}")
+    private Duration ttl;
+
+    @Value("${application.security.user-cache.max-size:10000}")
+    private int maxSize;
+
+    // Access-ordered so the least recently used accounts are evicted first
+    private final LinkedHashMap<String, CachedAccount> accounts = new LinkedHashMap<>(256, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public UserPrincipalCache(UserRepository userRepository, PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public Optional<AuthenticatedUser> findByEmail(String email) {
+        lock.lock();
+        try {
+            CachedAccount cached = accounts.get(email);
+            if (cached != null && cached.loadedAt().plus(ttl).isAfter(Instant.now())) {
+                return Optional.of(cached.account());
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        Optional<AuthenticatedUser> account = readOnlyTransaction.execute(status -> userRepository.findByEmail(email)
+                .map(AuthenticatedUser::from));
+        account.ifPresent(loaded -> {
+            lock.lock();
+            try {
+                accounts.put(email, new CachedAccount(loaded, Instant.now()));
+                var iterator = accounts.values().iterator();
+                while (accounts.size() > maxSize && iterator.hasNext()) {
+                    iterator.next();
+                    iterator.remove();
+                }
+            } finally {
+                lock.unlock();
+            }
+        });
+        return account;
+    }
+
+    public void invalidate(String email) {
+        lock.lock();
+        try {
+            accounts.remove(email);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record CachedAccount(AuthenticatedUser account, Instant loadedAt) {
+    }
+}
@@ -1,8 +1,8 @@
 package com.moetawol.book.user;
 
+import com.moetawol.book.common.TimeOrderedUuidGenerator;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
@@ -12,6 +12,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.UuidGenerator;
 import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
@@ -25,7 +26,7 @@ import java.util.UUID;
  @Entity
 public class Token {
     @Id
-    @GeneratedValue(generator = "UUID")
+    @UuidGenerator(algorithm = TimeOrderedUuidGenerator.class)
     @Column(nullable = false, updatable = false)
     private UUID id;
 
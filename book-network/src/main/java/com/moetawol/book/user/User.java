@@ -2,12 +2,12 @@ package com.moetawol.book.user;
 
 
 import com.moetawol.book.book.Book;
+import com.moetawol.book.common.TimeOrderedUuidGenerator;
 import com.moetawol.book.history.BookTransactionHistory;
 import com.moetawol.book.role.Role;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EntityListeners;
-import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.OneToMany;
@@ -18,6 +18,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UuidGenerator;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 import org.springframework.security.core.GrantedAuthority;
@@ -33,7 +34,7 @@ import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
-import static jakarta.persistence.FetchType.EAGER;
+import static jakarta.persistence.FetchType.LAZY;
 
 
 @Getter
@@ -47,7 +48,7 @@ import static jakarta.persistence.FetchType.EAGER;
 public class User implements UserDetails, Principal {
 
     @Id
-    @GeneratedValue(generator = "UUID")
+    @UuidGenerator(algorithm = TimeOrderedUuidGenerator.class)
     private UUID id;
 
     private String firstname;
@@ -58,7 +59,8 @@ public class User implements UserDetails, Principal {
     private String password;
     private boolean accountLocked;
     private boolean enabled;
-    @ManyToMany(fetch = EAGER)
+    // Loaded through UserRepository#findByEmail when authenticating, so book owners do not drag their roles along
+    @ManyToMany(fetch = LAZY)
     private List<Role> roles;
     @OneToMany(mappedBy = "owner")
     private List<Book> books;
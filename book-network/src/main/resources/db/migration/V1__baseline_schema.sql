@@ -0,0 +1,91 @@
+-- Schema as previously generated by Hibernate from the entities.
+-- Databases created before migrations existed are baselined at this version and skip this script.
+
+create table _user (
+    id binary(16) not null,
+    firstname varchar(255),
+    lastname varchar(255),
+    date_of_birth date,
+    email varchar(255),
+    password varchar(255),
+    account_locked bit not null,
+    enabled bit not null,
+    created_at datetime(6),
+    last_modified_date datetime(6),
+    primary key (id),
+    constraint uk_user_email unique (email)
+);
+
+create table role (
+    id binary(16) not null,
+    name varchar(255),
+    created_date datetime(6) not null,
+    last_modified_date datetime(6),
+    primary key (id),
+    constraint uk_role_name unique (name)
+);
+
+create table _user_roles (
+    user_id binary(16) not null,
+    roles_id binary(16) not null,
+    constraint fk_user_roles_user foreign key (user_id) references _user (id),
+    constraint fk_user_roles_role foreign key (roles_id) references role (id)
+);
+
+create table token (
+    id binary(16) not null,
+    token varchar(255),
+    created_at datetime(6),
+    expires_at datetime(6),
+    validated_at datetime(6),
+    user_id binary(16) not null,
+    primary key (id),
+    constraint uk_token_token unique (token),
+    constraint fk_token_user foreign key (user_id) references _user (id)
+);
+
+create table book (
+    id binary(16) not null,
+    title varchar(255),
+    author_name varchar(255),
+    isbn varchar(255),
+    synopsis varchar(255),
+    book_cover varchar(255),
+    archived bit not null,
+    shareable bit not null,
+    owner_id binary(16),
+    created_date datetime(6) not null,
+    last_modified_date datetime(6),
+    created_by varchar(255) not null,
+    last_modified_by varchar(255),
+    primary key (id),
+    constraint fk_book_owner foreign key (owner_id) references _user (id)
+);
+
+create table book_transaction_history (
+    id binary(16) not null,
+    user_id binary(16),
+    book_id binary(16),
+    returned bit not null,
+    return_approved bit not null,
+    created_date datetime(6) not null,
+    last_modified_date datetime(6),
+    created_by varchar(255) not null,
+    last_modified_by varchar(255),
+    primary key (id),
+    constraint fk_history_user foreign key (user_id) references _user (id),
+    constraint fk_history_book foreign key (book_id) references book (id)
+);
+
+create table feedback (
+    id binary(16) not null,
+    note float(53),
+    comment varchar(255),
+    book_id binary(16),
+    created_date datetime(6) not null,
+    last_modified_date datetime(6),
+    created_by varchar(255) not null,
+    last_modified_by varchar(255),
+    primary key (id),
+    constraint fk_feedback_book foreign key (book_id) references book (id)
+);
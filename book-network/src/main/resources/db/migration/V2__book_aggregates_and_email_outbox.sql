@@ -0,0 +1,35 @@
+-- Columns and tables added to the entities since the V1 schema.
+-- Existing rows get neutral values; the startup backfills fill in the real ones
+-- (application.rating.backfill-on-startup, application.borrowing.backfill-on-startup).
+
+-- Content hash and size of the stored cover, for the versioned cover URL; null until the next upload, the URL is then unversioned
+alter table book add column book_cover_hash varchar(255);
+alter table book add column book_cover_size bigint;
+
+-- Rating aggregate maintained by BookRatingService
+alter table book add column rate_sum float(53) not null default 0;
+alter table book add column rate_count bigint not null default 0;
+alter table book add column rate float(53) not null default 0;
+
+-- Current borrower, claimed by BookRepository.claimForBorrowing
+alter table book add column borrower_id binary(16);
+
+-- Transactional outbox read by EmailOutboxDispatcher
+create table email_outbox (
+    id binary(16) not null,
+    recipient varchar(255) not null,
+    username varchar(255),
+    template enum ('ACTIVATE_ACCOUNT'),
+    confirmation_url varchar(255),
+    activation_code varchar(255),
+    subject varchar(255),
+    status enum ('DEAD','PENDING','SENT') not null,
+    attempts integer not null,
+    next_attempt_at datetime(6),
+    last_error varchar(1000),
+    created_at datetime(6) not null,
+    sent_at datetime(6),
+    primary key (id)
+);
+
+create index idx_email_outbox_due on email_outbox (status, next_attempt_at);
@@ -0,0 +1,17 @@
+-- Composite indexes matching the predicates and sort (created_date, id) of the repository queries.
+-- The trailing (created_date, id) columns let offset and cursor pages read rows in index order without a filesort.
+
+-- BookRepository.findAllDisplayableBooks / countAllDisplayableBooks / findAllDisplayableBooksAfter
+create index idx_book_displayable on book (archived, shareable, created_date, id);
+
+-- BookRepository.findAllByOwner / countByOwnerId / findAllByOwnerAfter, and the owner join of findAllReturnedBooks
+create index idx_book_owner_created on book (owner_id, created_date, id);
+
+-- BookTransactionHistoryRepository.findByBookIdAndUserId / findByBookIdAndOwnerId, BookRepository.backfillBorrowers
+create index idx_history_book_open on book_transaction_history (book_id, return_approved, returned);
+
+-- BookTransactionHistoryRepository.findAllBorrowedBooks / countAllBorrowedBooks / findAllBorrowedBooksAfter
+create index idx_history_user_created on book_transaction_history (user_id, created_date, id);
+
+-- FeedBackRepository.findAllByBookId / countByBookId / findAllByBookIdAfter
+create index idx_feedback_book_created on feedback (book_id, created_date, id);
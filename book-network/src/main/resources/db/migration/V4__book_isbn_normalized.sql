@@ -0,0 +1,5 @@
+-- Canonical ISBN-13 of each book, see Isbn#normalize. Existing rows are filled by BookIsbnBackfill at startup.
+alter table book add column isbn_normalized varchar(255);
+
+-- BookRepository.findAllByIsbn / countAllByIsbn / existsByOwnerAndIsbn
+create index idx_book_isbn on book (isbn_normalized, owner_id);
@@ -0,0 +1,7 @@
+-- Covering indexes for the aggregate queries behind the list ETags, so a revalidation only reads index entries.
+
+-- BookRepository.findOwnerBooksVersion
+create index idx_book_owner_version on book (owner_id, last_modified_date, created_date);
+
+-- BookTransactionHistoryRepository.findBorrowedBooksVersion
+create index idx_history_user_version on book_transaction_history (user_id, last_modified_date, created_date, book_id);
@@ -0,0 +1,42 @@
+package com.moetawol.book;
+
+import com.moetawol.book.book.Book;
+import com.moetawol.book.role.Role;
+import com.moetawol.book.user.User;
+
+import java.util.List;
+
+/**
+ * Entities for the JPA tests, with every mandatory field set; persist them with the test's own EntityManager.
+ */
+public final class JpaFixture {
+
+    private JpaFixture() {
+    }
+
+    public static Role readerRole() {
+        return Role.builder().name("READER").build();
+    }
+
+    // Enabled user whose names and email derive from name
+    public static User user(String name, Role role) {
+        return User.builder()
+                .firstname(name)
+                .lastname(name)
+                .email(name + "@mail.com")
+                .password("password")
+                .enabled(true)
+                .roles(List.of(role))
+                .build();
+    }
+
+    // Shareable book, to be completed by the caller before build()
+    public static Book.BookBuilder<?, ?> book(String title, User owner) {
+        return Book.builder()
+                .title(title)
+                .authorName("Author")
+                .synopsis("Synopsis")
+                .shareable(true)
+                .owner(owner);
+    }
+}
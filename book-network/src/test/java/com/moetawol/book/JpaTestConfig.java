@@ -0,0 +1,19 @@
+package com.moetawol.book;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.AuditorAware;
+
+import java.util.Optional;
+
+/**
+ * Beans every JPA slice test needs on top of {@code @DataJpaTest}: the auditor filling the created_by columns.
+ */
+@TestConfiguration
+public class JpaTestConfig {
+
+    @Bean
+    public AuditorAware<String> auditorAware() {
+        return () -> Optional.of("auditor");
+    }
+}
@@ -0,0 +1,81 @@
+package com.moetawol.book;
+
+import com.moetawol.book.book.Book;
+import com.moetawol.book.book.BookRepository;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Upgrades a database created before migrations existed: the V1 schema with a book in it, no Flyway history.
+ * Flyway baselines it at V1 and applies the later scripts, then Hibernate validates the result against the entities
+ * while the context starts.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:schema-migration;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(JpaTestConfig.class)
+class SchemaMigrationTest {
+
+    private static final UUID EXISTING_BOOK = UUID.randomUUID();
+
+    @Autowired
+    private Flyway flyway;
+    @Autowired
+    private BookRepository bookRepository;
+
+    @TestConfiguration
+    static class PreMigrationDatabase {
+        @Bean
+        public FlywayMigrationStrategy baselineExistingDatabase() {
+            return flyway -> {
+                new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__baseline_schema.sql"))
+                        .execute(flyway.getConfiguration().getDataSource());
+                new JdbcTemplate(flyway.getConfiguration().getDataSource()).update("""
+                        INSERT INTO book (id, title, archived, shareable, created_date, created_by)
+                        VALUES (?, 'Existing', false, true, CURRENT_TIMESTAMP, 'seed')
+                        """, EXISTING_BOOK);
+                flyway.migrate();
+            };
+        }
+    }
+
+    @Test
+    void existingDatabaseIsBaselinedAtV1AndGetsTheLaterScripts() {
+        List<String> applied = Arrays.stream(flyway.info().applied())
+                .map(MigrationInfo::getVersion)
+                .map(Object::toString)
+                .toList();
+        assertEquals(List.of("1", "2", "3", "4", "5"), applied);
+        assertEquals("<< Flyway Baseline >>", flyway.info().applied()[0].getDescription());
+    }
+
+    @Test
+    void existingRowsGetNeutralValuesForTheNewColumns() {
+        Book book = bookRepository.findById(EXISTING_BOOK).orElseThrow();
+        assertEquals(0, book.getRateCount());
+        assertEquals(0.0, book.getRate());
+        assertNull(book.getBorrowerId());
+        assertNull(book.getBookCoverHash());
+    }
+}
@@ -0,0 +1,199 @@
+package com.moetawol.book;
+
+import com.moetawol.book.role.Role;
+import com.moetawol.book.role.RoleRepository;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * With {@code spring.threads.virtual.enabled}, a virtual thread that blocks while holding a monitor stays mounted on
+ * its carrier (Java 21 to 23), so a few slow requests can stall all the others. Shared state is guarded by
+ * {@link ReentrantLock} instead, and this test keeps {@code synchronized} out of the main sources.
+ * That covers our code only. Requests mostly block in the pool and the JDBC driver: HikariCP 5.1 and
+ * MySQL Connector/J 9.x, the versions Spring Boot 3.4 manages, lock with ReentrantLock where older Connector/J 8.0
+ * releases held a monitor around every statement. On Java 21 to 23 the virtual-threads profile of the pom traces any
+ * pinning during the tests (jdk.tracePinnedThreads), and repositoryCallsDoNotPinVirtualThreads records it with JFR
+ * through Spring, Hibernate and HikariCP; H2, the test database, stands in for Connector/J there.
+ */
+@DataJpaTest
+@Import(JpaTestConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VirtualThreadPinningTest {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningTest.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int REPOSITORY_CALLS = 200;
+
+    private static final Pattern SYNCHRONIZED = Pattern.compile("\\bsynchronized\\b");
+    private static final Pattern COMMENT = Pattern.compile("//.*|/\\*(?s:.*?)\\*/");
+
+    @Test
+    void mainSourcesDoNotUseMonitors() throws IOException {
+        List<String> offenders = new ArrayList<>();
+        try (Stream<Path> sources = Files.walk(Paths.get("src", "main", "java"))) {
+            for (Path source : sources.filter(path -> path.toString().endsWith(".java")).toList()) {
+                String code = COMMENT.matcher(Files.readString(source)).replaceAll("");
+                if (SYNCHRONIZED.matcher(code).find()) {
+                    offenders.add(source.toString());
+                }
+            }
+        }
+        assertTrue(offenders.isEmpty(), "synchronized pins virtual threads, use a ReentrantLock in " + offenders);
+    }
+
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        roleRepository.deleteAll();
+    }
+
+    // More virtual threads than pooled connections, so they also park in HikariCP waiting for one
+    @Test
+    void repositoryCallsDoNotPinVirtualThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads need Java 21");
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<RecordedEvent> pinned;
+        try (Recording recording = new Recording()) {
+            recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+            ExecutorService executor = newVirtualExecutor();
+            List<Future<?>> calls = new ArrayList<>();
+            for (int i = 0; i < REPOSITORY_CALLS; i++) {
+                String name = "PINNING_" + i;
+                calls.add(executor.submit(() -> transaction.executeWithoutResult(status -> {
+                    roleRepository.save(Role.builder().name(name).build());
+                    roleRepository.findByName(name).orElseThrow();
+                })));
+            }
+            for (Future<?> call : calls) {
+                call.get(1, TimeUnit.MINUTES);
+            }
+            executor.shutdown();
+            recording.stop();
+            Path dump = Files.createTempFile("pinning", ".jfr");
+            try {
+                recording.dump(dump);
+                pinned = RecordingFile.readAllEvents(dump).stream()
+                        .filter(event -> event.getEventType().getName().equals(PINNED_EVENT))
+                        .toList();
+            } finally {
+                Files.delete(dump);
+            }
+        }
+
+        // H2 guards its sessions with monitors; Connector/J, which replaces it in production, does not
+        List<String> offenders = pinned.stream()
+                .filter(event -> event.getStackTrace() != null)
+                .map(event -> event.getStackTrace().getFrames())
+                .filter(frames -> frames.stream().noneMatch(frame -> typeName(frame).startsWith("org.h2.")))
+                .map(frames -> frames.stream().limit(12).map(frame -> typeName(frame) + "." + frame.getMethod().getName())
+                        .toList().toString())
+                .toList();
+        assertTrue(offenders.isEmpty(), "Virtual threads pinned in " + offenders);
+    }
+
+    private static String typeName(RecordedFrame frame) {
+        return frame.getMethod().getType().getName();
+    }
+
+    // mvn test -Dtest=VirtualThreadPinningTest -Dbenchmark=true [-Dbenchmark.tasks=20000], on Java 21 to 23
+    // A lock microbenchmark, not an endpoint benchmark: synthetic tasks take a lock, then sleep 5 ms in place of
+    // a blocking call, on a 200-thread pool (Tomcat's default) and on virtual threads, once with a ReentrantLock
+    // released before the sleep and once with a monitor held across it. It measures what pinning costs the
+    // carriers, not what the application's requests achieve.
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkLockHeldAcrossBlockingCall() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads need Java 21");
+        int tasks = Integer.getInteger("benchmark.tasks", 20_000);
+
+        run("platform threads, lock", tasks, Executors.newFixedThreadPool(200), false);
+        run("virtual threads, lock", tasks, newVirtualExecutor(), false);
+        run("virtual threads, monitor", tasks, newVirtualExecutor(), true);
+    }
+
+    // Called reflectively, the project compiles for Java 17
+    private static ExecutorService newVirtualExecutor() throws ReflectiveOperationException {
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    }
+
+    private static void run(String name, int tasks, ExecutorService executor, boolean pinned) throws InterruptedException {
+        Map<Integer, String> cache = new ConcurrentHashMap<>();
+        ReentrantLock lock = new ReentrantLock();
+        Object[] monitors = Stream.generate(Object::new).limit(tasks).toArray();
+        CountDownLatch done = new CountDownLatch(tasks);
+        long start = System.nanoTime();
+        for (int i = 0; i < tasks; i++) {
+            int task = i;
+            int key = i % 1_000;
+            executor.execute(() -> {
+                try {
+                    if (pinned) {
+                        // Uncontended, one per task: any slowdown comes from pinning, not from waiting on each other
+                        synchronized (monitors[task]) {
+                            cache.computeIfAbsent(key, String::valueOf);
+                            Thread.sleep(5);
+                        }
+                    } else {
+                        lock.lock();
+                        try {
+                            cache.computeIfAbsent(key, String::valueOf);
+                        } finally {
+                            lock.unlock();
+                        }
+                        // Synthetic stand-in for a blocking call
+                        Thread.sleep(5);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        log.info("{}: {} tasks in {} s, {} tasks/s", name, tasks, String.format("%.2f", seconds), Math.round(tasks / seconds));
+    }
+}
@@ -0,0 +1,99 @@
+package com.moetawol.book.book;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static com.moetawol.book.book.BookIndexFixture.OWNER;
+import static com.moetawol.book.book.BookIndexFixture.READER;
+import static com.moetawol.book.book.BookIndexFixture.changed;
+import static com.moetawol.book.book.BookIndexFixture.document;
+import static com.moetawol.book.book.BookIndexFixture.loader;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookAuthorIndexTest {
+
+    private final BookRepository bookRepository = mock(BookRepository.class);
+    private final BookAuthorIndex index = new BookAuthorIndex(bookRepository, loader(100));
+
+    private final BookSearchDocument dune = document("Dune", "Frank Herbert", OWNER, false, true);
+    private final BookSearchDocument messiah = document("Dune Messiah", "frank  HERBERT", OWNER, false, true);
+    private final BookSearchDocument notes = document("Dune notes", "Frank Herbert", READER, false, true);
+    private final BookSearchDocument diary = document("Diary", "Reader", READER, false, true);
+    private final BookSearchDocument archived = document("Old", "Anna Dunlop", OWNER, true, true);
+
+    @BeforeEach
+    void setUp() {
+        when(bookRepository.findSearchDocumentsAfter(any(), any())).thenReturn(List.of(dune, messiah, notes, diary, archived));
+        index.rebuild();
+    }
+
+    @Test
+    void countsDisplayableBooksPerAuthorExcludingTheCallersOwn() {
+        assertEquals(
+                new BookAuthorIndex.AuthorPage(List.of(new AuthorFacet("frank herbert", "Frank Herbert", 2)), 1, null),
+                index.findAuthors(READER, 0, 10)
+        );
+        assertEquals(
+                new BookAuthorIndex.AuthorPage(List.of(
+                        new AuthorFacet("frank herbert", "Frank Herbert", 1),
+                        new AuthorFacet("reader", "Reader", 1)
+                ), 2, null),
+                index.findAuthors(OWNER, 0, 10)
+        );
+        assertEquals(
+                new BookAuthorIndex.AuthorBooks(List.of(dune.id(), messiah.id()), 2),
+                index.findBooks("Frank Herbert", READER, 0, 10)
+        );
+    }
+
+    @Test
+    void seeksPastTheCursorAndSkipsAuthorsHiddenFromTheCaller() {
+        index.applyAll(List.of(
+                document("Anna's book", "Anna Dunlop", OWNER, false, true),
+                document("Zoe's book", "Zoe Ames", OWNER, false, true)
+        ));
+
+        BookAuthorIndex.AuthorPage first = index.findAuthorsAfter(READER, "", 2);
+        assertEquals(List.of("anna dunlop", "frank herbert"), first.authors().stream().map(AuthorFacet::key).toList());
+        assertEquals("frank herbert", first.nextKey());
+
+        // "reader" only has the caller's own books
+        BookAuthorIndex.AuthorPage last = index.findAuthorsAfter(READER, first.nextKey(), 2);
+        assertEquals(new BookAuthorIndex.AuthorPage(List.of(new AuthorFacet("zoe ames", "Zoe Ames", 1)), 3, null), last);
+    }
+
+    @Test
+    void skipsBooksWithoutOwner() {
+        index.applyAll(List.of(new BookSearchDocument(UUID.randomUUID(), "Orphan", "Frank Herbert", null, null, null, false, true)));
+
+        assertEquals(2, index.findAuthors(READER, 0, 10).authors().get(0).bookCount());
+        assertEquals(List.of(dune.id(), messiah.id()), index.findBooks("Frank Herbert", READER, 0, 10).bookIds());
+    }
+
+    @Test
+    void keepsCountsInStepWithCommittedChanges() {
+        BookSearchDocument created = document("Anna's book", "Anna Dunlop", OWNER, false, true);
+
+        index.apply(dune.id(), Optional.of(changed(dune, dune.title(), null, false)));
+        index.apply(created.id(), Optional.of(created));
+
+        assertEquals(
+                new BookAuthorIndex.AuthorPage(List.of(
+                        new AuthorFacet("anna dunlop", "Anna Dunlop", 1),
+                        new AuthorFacet("frank herbert", "Frank Herbert", 1)
+                ), 2, null),
+                index.findAuthors(READER, 0, 10)
+        );
+        assertEquals(
+                new BookAuthorIndex.AuthorBooks(List.of(messiah.id()), 1),
+                index.findBooks("frank herbert", READER, 0, 10)
+        );
+    }
+}
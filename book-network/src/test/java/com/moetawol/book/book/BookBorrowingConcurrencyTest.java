@@ -0,0 +1,100 @@
+package com.moetawol.book.book;
+
+import com.moetawol.book.JpaTestConfig;
+import com.moetawol.book.role.Role;
+import com.moetawol.book.role.RoleRepository;
+import com.moetawol.book.user.User;
+import com.moetawol.book.user.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.moetawol.book.JpaFixture.book;
+import static com.moetawol.book.JpaFixture.user;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Each claim must commit on its own, so the test runs outside the usual rolled-back test transaction
+@DataJpaTest
+@Import(JpaTestConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookBorrowingConcurrencyTest {
+
+    private static final int ATTEMPTS = 400;
+    private static final int THREADS = 64;
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User owner;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        Role role = roleRepository.save(Role.builder().name("LENDER").build());
+        owner = userRepository.save(user("lender", role));
+        book = bookRepository.save(book("Contended", owner).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.delete(book);
+        userRepository.delete(owner);
+        roleRepository.findByName("LENDER").ifPresent(roleRepository::delete);
+    }
+
+    @Test
+    void onlyOneConcurrentBorrowerClaimsTheBook() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> claims = new ArrayList<>();
+        try {
+            for (int i = 0; i < ATTEMPTS; i++) {
+                UUID borrower = UUID.randomUUID();
+                claims.add(executor.submit(() -> {
+                    start.await();
+                    return transaction.execute(status -> bookRepository.claimForBorrowing(book.getId(), borrower));
+                }));
+            }
+            start.countDown();
+
+            int claimed = 0;
+            for (Future<Integer> claim : claims) {
+                claimed += claim.get();
+            }
+            assertEquals(1, claimed);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(bookRepository.findById(book.getId()).map(Book::getBorrowerId).isPresent());
+    }
+
+    @Test
+    void ownerCannotClaimTheirOwnBook() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Integer claimed = transaction.execute(status -> bookRepository.claimForBorrowing(book.getId(), owner.getId()));
+        assertEquals(0, claimed);
+    }
+}
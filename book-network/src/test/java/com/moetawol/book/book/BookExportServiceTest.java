@@ -0,0 +1,137 @@
+package com.moetawol.book.book;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.moetawol.book.JpaFixture;
+import com.moetawol.book.JpaTestConfig;
+import com.moetawol.book.exception.ExportRejectedException;
+import com.moetawol.book.history.BookTransactionHistory;
+import com.moetawol.book.role.Role;
+import com.moetawol.book.security.AuthenticatedUser;
+import com.moetawol.book.user.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static com.moetawol.book.JpaFixture.readerRole;
+import static com.moetawol.book.JpaFixture.user;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import({BookExportService.class, JpaTestConfig.class})
+class BookExportServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private BookExportService exportService;
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Authentication connectedUser;
+
+    @TestConfiguration
+    static class ExportConfig {
+        @Bean
+        public ObjectMapper objectMapper() {
+            return new ObjectMapper().registerModule(new JavaTimeModule());
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        Role role = entityManager.persist(readerRole());
+        User owner = entityManager.persist(user("owner", role));
+        User friend = entityManager.persist(user("friend", role));
+        Book dune = entityManager.persist(book("Dune", "Desert planet, spice", owner));
+        entityManager.persist(book("Messiah", "Second book", owner));
+        Book friendBook = entityManager.persist(book("Borrowed", "From a friend", friend));
+        entityManager.persist(BookTransactionHistory.builder().user(friend).book(dune).returned(true).build());
+        entityManager.persist(BookTransactionHistory.builder().user(owner).book(friendBook).build());
+        entityManager.flush();
+        entityManager.clear();
+        connectedUser = new UsernamePasswordAuthenticationToken(AuthenticatedUser.from(owner), null, List.of());
+    }
+
+    @Test
+    void exportsTheShelfAsCsvThatTheImportCanRead() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportBooks(out, BookFileFormat.CSV, false, connectedUser);
+
+        List<String> lines = out.toString(UTF_8).lines().toList();
+        assertEquals(3, lines.size());
+        assertEquals("id,title,authorName,isbn,synopsis,shareable,archived,rate,createdDate", lines.get(0));
+        assertEquals(Set.of("Messiah", "Dune"), lines.stream().skip(1).map(line -> line.split(",")[1]).collect(Collectors.toSet()));
+        assertEquals(1, lines.stream().filter(line -> line.contains("\"Desert planet, spice\"")).count());
+    }
+
+    @Test
+    void exportsBorrowedAndLentBooksAsGzippedNdjson() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportHistory(out, BookFileFormat.NDJSON, true, connectedUser);
+
+        List<JsonNode> rows = new String(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes(), UTF_8)
+                .lines()
+                .map(this::readTree)
+                .toList();
+        assertEquals(2, rows.size());
+        assertEquals("BORROWER", rows.get(0).get("role").asText());
+        assertEquals("Borrowed", rows.get(0).get("title").asText());
+        assertEquals("friend friend", rows.get(0).get("owner").asText());
+        assertEquals("OWNER", rows.get(1).get("role").asText());
+        assertEquals("Dune", rows.get(1).get("title").asText());
+        assertEquals("friend friend", rows.get(1).get("borrower").asText());
+        assertTrue(rows.get(1).get("returned").asBoolean());
+    }
+
+    @Test
+    void rejectsExportsBeyondTheLimitUntilOneHasBeenWritten() throws IOException {
+        BookExportService limited = new BookExportService(objectMapper, null, null, 1);
+        StreamingResponseBody running = limited.admit(out -> out.write('x'));
+
+        assertThrows(ExportRejectedException.class, () -> limited.admit(out -> out.write('y')));
+
+        running.writeTo(new ByteArrayOutputStream());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        limited.admit(next -> next.write('z')).writeTo(out);
+        assertEquals("z", out.toString(UTF_8));
+    }
+
+    private JsonNode readTree(String line) {
+        try {
+            return objectMapper.readTree(line);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Book book(String title, String synopsis, User owner) {
+        return JpaFixture.book(title, owner)
+                .authorName("Frank Herbert")
+                .isbn("isbn-" + title)
+                .synopsis(synopsis)
+                .build();
+    }
+}
@@ -0,0 +1,163 @@
+package com.moetawol.book.book;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moetawol.book.JpaTestConfig;
+import com.moetawol.book.file.CoverCache;
+import com.moetawol.book.role.Role;
+import com.moetawol.book.security.AuthenticatedUser;
+import com.moetawol.book.user.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.moetawol.book.JpaFixture.book;
+import static com.moetawol.book.JpaFixture.readerRole;
+import static com.moetawol.book.JpaFixture.user;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+// On the migrated schema: the writer inserts with plain SQL, relying on its column defaults and indexes
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:book-import;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "application.import.batch-size=2"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({BookImportService.class, BookImportWriter.class, BookMapper.class, JpaTestConfig.class})
+class BookImportServiceTest {
+
+    @Autowired
+    private BookImportService importService;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @MockitoBean
+    private BookIsbnIndex isbnIndex;
+    @MockitoBean
+    private CoverCache coverCache;
+
+    private User owner;
+    private Authentication connectedUser;
+
+    @TestConfiguration
+    static class ImportConfig {
+        @Bean
+        public ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+
+        @Bean
+        public LocalValidatorFactoryBean validator() {
+            return new LocalValidatorFactoryBean();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        Role role = entityManager.persist(readerRole());
+        // Flushed: the writer's plain SQL inserts reference the owner row
+        owner = entityManager.persistAndFlush(user("owner", role));
+        connectedUser = new UsernamePasswordAuthenticationToken(AuthenticatedUser.from(owner), null, List.of());
+        when(isbnIndex.mightContain(any())).thenReturn(true);
+    }
+
+    @Test
+    void importsValidCsvRecordsAndReportsTheOthers() throws IOException {
+        entityManager.persist(book("Owned", owner).isbn("0-441-01359-7").build());
+        String csv = """
+                title,authorName,isbn,synopsis,shareable
+                Dune,Frank Herbert,978-0-306-40615-7,"Desert planet, spice",true
+                ,Nobody,1234567890123,No title,false
+                Dune again,Frank Herbert,9780306406157,Same ISBN,true
+                Owned twice,A,978-0-441-01359-3,Already owned,true
+                Messiah,Frank Herbert,9780441013594,Second book,maybe
+                Children,Frank Herbert,9780441013595,Third book,false
+                """;
+
+        BookImportReport report = importService.importBooks(body(csv), BookFileFormat.CSV, connectedUser);
+
+        assertEquals(2, report.imported());
+        assertEquals(4, report.rejected());
+        assertEquals(List.of(2L, 3L, 4L, 5L), report.errors().stream().map(BookImportError::record).toList());
+        assertEquals(Set.of("100"), report.errors().get(0).validationErrors());
+        assertEquals("You already own a book with this ISBN", report.errors().get(2).error());
+        assertEquals(Set.of("Owned", "Dune", "Children"), titles());
+        assertEquals("Desert planet, spice", bookRepository.findAll().stream()
+                .filter(book -> book.getTitle().equals("Dune")).findFirst().orElseThrow().getSynopsis());
+    }
+
+    @Test
+    void skipsMalformedNdjsonLines() throws IOException {
+        String ndjson = """
+                {"title":"Dune","authorName":"Frank Herbert","isbn":"9780306406157","synopsis":"S","shareable":true}
+                {"title":"Broken",
+
+                {"title":"Messiah","authorName":"Frank Herbert","isbn":"9780441013594","synopsis":"S","shareable":false}
+                """;
+
+        BookImportReport report = importService.importBooks(body(ndjson), BookFileFormat.NDJSON, connectedUser);
+
+        assertEquals(2, report.imported());
+        assertEquals(List.of(2L), report.errors().stream().map(BookImportError::record).toList());
+        assertEquals(Set.of("Dune", "Messiah"), titles());
+    }
+
+    // mvn test -Dtest=BookImportServiceTest -Dbenchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkNdjsonImport() throws IOException {
+        int books = 200_000;
+        String ndjson = IntStream.range(0, books)
+                .mapToObj(i -> "{\"title\":\"Title " + i + "\",\"authorName\":\"Author " + i % 500
+                        + "\",\"isbn\":\"" + (9780000000000L + i) + "\",\"synopsis\":\"Synopsis\",\"shareable\":true}")
+                .collect(Collectors.joining("\n"));
+        // A real filter: mock invocations are recorded and would dominate the timing
+        BookIsbnIndex loadedIndex = new BookIsbnIndex(bookRepository, new BookIsbnBackfill(bookRepository), BookIndexFixture.loader(1000));
+        ReflectionTestUtils.setField(loadedIndex, "expectedBooks", (long) books);
+        ReflectionTestUtils.setField(loadedIndex, "falsePositiveRate", 0.01);
+        loadedIndex.run(null);
+        ReflectionTestUtils.setField(importService, "isbnIndex", loadedIndex);
+        ReflectionTestUtils.setField(importService, "batchSize", 1000);
+
+        long start = System.nanoTime();
+        BookImportReport report = importService.importBooks(body(ndjson), BookFileFormat.NDJSON, connectedUser);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        assertEquals(books, report.imported());
+        assertEquals(books, bookRepository.count());
+        System.out.printf("Imported %d books in %.2f s: %.0f books/s%n", books, seconds, books / seconds);
+    }
+
+    private Set<String> titles() {
+        entityManager.clear();
+        return bookRepository.findAll().stream().map(Book::getTitle).collect(Collectors.toSet());
+    }
+
+    private static ByteArrayInputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,48 @@
+package com.moetawol.book.book;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+
+/**
+ * Documents and a small-batch loader shared by the in-memory index tests.
+ */
+final class BookIndexFixture {
+
+    static final UUID OWNER = UUID.randomUUID();
+    static final UUID READER = UUID.randomUUID();
+
+    private BookIndexFixture() {
+    }
+
+    static BookKeysetLoader loader(int batchSize) {
+        BookKeysetLoader loader = new BookKeysetLoader();
+        ReflectionTestUtils.setField(loader, "batchSize", batchSize);
+        return loader;
+    }
+
+    static BookSearchDocument document(String title, String author, UUID owner, boolean archived, boolean shareable) {
+        return document(title, author, null, null, owner, archived, shareable);
+    }
+
+    static BookSearchDocument document(
+            String title,
+            String author,
+            String isbn,
+            String synopsis,
+            UUID owner,
+            boolean archived,
+            boolean shareable
+    ) {
+        return new BookSearchDocument(UUID.randomUUID(), title, author, isbn, synopsis, owner, archived, shareable);
+    }
+
+    // Same book with other fields, as loaded after a committed change
+    static BookSearchDocument changed(BookSearchDocument book, String title, String synopsis, boolean shareable) {
+        return new BookSearchDocument(book.id(), title, book.authorName(), book.isbn(), synopsis, book.ownerId(), book.archived(), shareable);
+    }
+
+    static BookSuggestionSource suggestion(String title, String author, boolean archived, long borrowCount) {
+        return new BookSuggestionSource(UUID.randomUUID(), title, author, archived, true, borrowCount);
+    }
+}
@@ -0,0 +1,96 @@
+package com.moetawol.book.book;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.moetawol.book.book.BookIndexFixture.OWNER;
+import static com.moetawol.book.book.BookIndexFixture.READER;
+import static com.moetawol.book.book.BookIndexFixture.changed;
+import static com.moetawol.book.book.BookIndexFixture.document;
+import static com.moetawol.book.book.BookIndexFixture.loader;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookIndexUpdaterTest {
+
+    private final BookRepository bookRepository = mock(BookRepository.class);
+    private final BookKeysetLoader loader = loader(2);
+    private final BookSearchIndex searchIndex = new BookSearchIndex(bookRepository, loader);
+    private final BookAuthorIndex authorIndex = new BookAuthorIndex(bookRepository, loader);
+    private final BookSuggestionIndex suggestionIndex = new BookSuggestionIndex(bookRepository, loader);
+    private final BookIndexUpdater updater = new BookIndexUpdater(bookRepository, loader, searchIndex, authorIndex, suggestionIndex);
+
+    private final BookSearchDocument dune = document("Dune", "Frank Herbert", OWNER, false, true);
+    private final BookSearchDocument messiah = document("Dune Messiah", "Frank Herbert", OWNER, false, true);
+    private final BookSearchDocument emma = document("Emma", "Jane Austen", OWNER, false, true);
+
+    @Test
+    void buildsTheSearchAndAuthorIndexesFromOneScan() {
+        when(bookRepository.findSearchDocumentsAfter(any(), any()))
+                .thenReturn(List.of(dune, messiah))
+                .thenReturn(List.of(emma));
+        when(bookRepository.findSuggestionSourcesAfter(any(), any())).thenReturn(List.of());
+
+        updater.run(null);
+
+        // Two batches of two at most, read once for both indexes
+        verify(bookRepository, times(2)).findSearchDocumentsAfter(any(), any());
+        assertEquals(3, searchIndex.search("dune emma", READER, 0, 10).total());
+        assertEquals(2, authorIndex.findAuthors(READER, 0, 10).total());
+    }
+
+    @Test
+    void readsAChangedBookOnceForTheSearchAndAuthorIndexes() {
+        when(bookRepository.findSearchDocument(dune.id())).thenReturn(Optional.of(changed(dune, "Children of Dune", null, true)));
+        when(bookRepository.findSuggestionSource(dune.id())).thenReturn(Optional.empty());
+
+        updater.onBookChanged(new BookChangedEvent(dune.id()));
+
+        verify(bookRepository, times(1)).findSearchDocument(dune.id());
+        assertEquals(List.of(dune.id()), searchIndex.search("children", READER, 0, 10).bookIds());
+        assertEquals(1, authorIndex.findAuthors(READER, 0, 10).total());
+    }
+
+    @Test
+    void appliesTheLatestReadWhenChangesToABookRace() throws Exception {
+        BookSearchDocument archived = changed(dune, dune.title(), null, false);
+        CountDownLatch secondApplied = new CountDownLatch(1);
+        // The first listener reads the older snapshot and, unless held back, applies it after the second one
+        when(bookRepository.findSearchDocument(dune.id()))
+                .thenAnswer(invocation -> {
+                    secondApplied.await(500, TimeUnit.MILLISECONDS);
+                    return Optional.of(dune);
+                })
+                .thenReturn(Optional.of(archived));
+        // Read once the search and author indexes have been updated
+        when(bookRepository.findSuggestionSource(dune.id())).thenAnswer(invocation -> {
+            secondApplied.countDown();
+            return Optional.empty();
+        });
+
+        ExecutorService listeners = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = listeners.submit(() -> updater.onBookChanged(new BookChangedEvent(dune.id())));
+            Thread.sleep(100);
+            Future<?> second = listeners.submit(() -> updater.onBookChanged(new BookChangedEvent(dune.id())));
+            first.get();
+            second.get();
+        } finally {
+            listeners.shutdown();
+        }
+
+        assertEquals(0, authorIndex.findAuthors(READER, 0, 10).total());
+        assertEquals(List.of(), searchIndex.search("dune", READER, 0, 10).bookIds());
+    }
+}
@@ -0,0 +1,58 @@
+package com.moetawol.book.book;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookIsbnIndexTest {
+
+    @Test
+    void normalizesBothIsbnFormsToTheSameKey() {
+        assertEquals("9780441013593", Isbn.normalize("978-0-441-01359-3"));
+        assertEquals("9780441013593", Isbn.normalize("0 441 01359 7"));
+        assertEquals("9780306406157", Isbn.normalize("0-306-40615-2"));
+        assertEquals("9780804429573", Isbn.normalize("080442957x"));
+        // An invalid ISBN-10 checksum is kept as typed
+        assertEquals("0441013598", Isbn.normalize("0-441-01359-8"));
+        assertNull(Isbn.normalize("  "));
+    }
+
+    @Test
+    void bloomFilterHasNoFalseNegativesAndFewFalsePositives() {
+        BookIsbnIndex.BloomFilter filter = BookIsbnIndex.BloomFilter.create(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.put("978" + i));
+
+        assertTrue(IntStream.range(0, 10_000).allMatch(i -> filter.mightContain("978" + i)));
+        long falsePositives = IntStream.range(0, 10_000).filter(i -> filter.mightContain("979" + i)).count();
+        assertTrue(falsePositives < 200, () -> falsePositives + " false positives");
+    }
+
+    @Test
+    void keepsIsbnsSavedWhileTheFilterLoads() {
+        BookIsbnBackfill backfill = mock(BookIsbnBackfill.class);
+        BookIsbnIndex index = new BookIsbnIndex(mock(BookRepository.class), backfill, BookIndexFixture.loader(100));
+        ReflectionTestUtils.setField(index, "expectedBooks", 1_000L);
+        ReflectionTestUtils.setField(index, "falsePositiveRate", 0.01);
+        // Saved after the scan read past its row, before the filter is swapped in
+        when(backfill.normalizeBatch(any(), anyInt())).thenAnswer(invocation -> {
+            index.add("9780441013593");
+            return List.of();
+        });
+
+        index.run(null);
+
+        assertTrue(index.mightContain("9780441013593"));
+        assertFalse(index.mightContain("9780306406157"));
+    }
+}
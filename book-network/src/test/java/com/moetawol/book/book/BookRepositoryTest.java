@@ -0,0 +1,108 @@
+package com.moetawol.book.book;
+
+import com.moetawol.book.JpaTestConfig;
+import com.moetawol.book.common.VersionStamp;
+import com.moetawol.book.history.BookTransactionHistory;
+import com.moetawol.book.history.BookTransactionHistoryRepository;
+import com.moetawol.book.role.Role;
+import com.moetawol.book.user.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static com.moetawol.book.JpaFixture.book;
+import static com.moetawol.book.JpaFixture.readerRole;
+import static com.moetawol.book.JpaFixture.user;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(JpaTestConfig.class)
+class BookRepositoryTest {
+
+    private static final int BOOKS = 30;
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private BookTransactionHistoryRepository historyRepository;
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final BookMapper bookMapper = new BookMapper(null);
+    private UUID borrowerId;
+
+    @BeforeEach
+    void setUp() {
+        Role role = entityManager.persist(readerRole());
+        User borrower = entityManager.persist(user("borrower", role));
+        borrowerId = borrower.getId();
+        // One owner per book, so any per-row lazy load shows up as an extra statement
+        for (int i = 0; i < BOOKS; i++) {
+            User owner = entityManager.persist(user("owner" + i, role));
+            Book book = entityManager.persist(book("Title " + i, owner)
+                    .authorName("Author " + i)
+                    .isbn("isbn-" + i)
+                    .build());
+            entityManager.persist(BookTransactionHistory.builder()
+                    .user(borrower)
+                    .book(book)
+                    .build());
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    void displayableBooksUseAFixedNumberOfStatements() {
+        assertEquals(
+                statementsFor(pageable -> bookRepository.findAllDisplayableBooks(pageable, UUID.randomUUID())
+                        .forEach(bookMapper::toBookResponse), 5),
+                statementsFor(pageable -> bookRepository.findAllDisplayableBooks(pageable, UUID.randomUUID())
+                        .forEach(bookMapper::toBookResponse), BOOKS)
+        );
+    }
+
+    @Test
+    void borrowedBooksUseAFixedNumberOfStatements() {
+        assertEquals(
+                statementsFor(pageable -> historyRepository.findAllBorrowedBooks(pageable, borrowerId)
+                        .forEach(bookMapper::toBorrowedBookResponse), 5),
+                statementsFor(pageable -> historyRepository.findAllBorrowedBooks(pageable, borrowerId)
+                        .forEach(bookMapper::toBorrowedBookResponse), BOOKS)
+        );
+    }
+
+    @Test
+    void borrowedBooksVersionChangesWhenABookIsRated() {
+        VersionStamp before = historyRepository.findBorrowedBooksVersion(borrowerId);
+        UUID bookId = historyRepository.findAll().get(0).getBook().getId();
+
+        bookRepository.addRating(bookId, 4);
+
+        VersionStamp after = historyRepository.findBorrowedBooksVersion(borrowerId);
+        assertEquals(BOOKS, after.count());
+        assertNotEquals(before.eTag(borrowerId), after.eTag(borrowerId));
+    }
+
+    private long statementsFor(Consumer<Pageable> query, int size) {
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        query.accept(PageRequest.of(0, size, Sort.by("createdDate").descending()));
+        return statistics.getPrepareStatementCount();
+    }
+}
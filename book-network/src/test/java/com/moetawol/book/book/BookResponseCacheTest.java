@@ -0,0 +1,123 @@
+package com.moetawol.book.book;
+
+import com.moetawol.book.JpaTestConfig;
+import com.moetawol.book.common.PageResponseStreamer;
+import com.moetawol.book.common.TotalCountEstimator;
+import com.moetawol.book.file.CoverCache;
+import com.moetawol.book.file.FileStorageService;
+import com.moetawol.book.user.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.moetawol.book.JpaFixture.book;
+import static com.moetawol.book.JpaFixture.readerRole;
+import static com.moetawol.book.JpaFixture.user;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+// Not transactional itself: an open test transaction would hold a connection and hide the one a hit might take
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({BookService.class, BookResponseCache.class, BookMapper.class, CoverCache.class, JpaTestConfig.class})
+class BookResponseCacheTest {
+
+    private static final AtomicInteger CONNECTIONS = new AtomicInteger();
+
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private FileStorageService fileStorageService;
+    @MockitoBean
+    private TotalCountEstimator countEstimator;
+    @MockitoBean
+    private BookSearchIndex searchIndex;
+    @MockitoBean
+    private BookSuggestionIndex suggestionIndex;
+    @MockitoBean
+    private BookAuthorIndex authorIndex;
+    @MockitoBean
+    private BookIsbnIndex isbnIndex;
+    @MockitoBean
+    private PageResponseStreamer pageStreamer;
+
+    @TestConfiguration
+    static class CountingConfig {
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        public static BeanPostProcessor countConnections() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? new CountingDataSource(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    @Test
+    void hitTakesNoConnectionAndRunsNoStatement() {
+        UUID bookId = new TransactionTemplate(transactionManager).execute(status -> {
+            User owner = entityManager.persist(user("owner", entityManager.persist(readerRole())));
+            return entityManager.persist(book("Dune", owner).build()).getId();
+        });
+        BookResponse loaded = bookService.findById(bookId, false);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        CONNECTIONS.set(0);
+
+        String eTag = bookService.findBookETag(bookId, false);
+        BookResponse hit = bookService.findById(bookId, false);
+
+        assertSame(loaded, hit);
+        assertEquals(eTag, bookService.findBookETag(bookId, false));
+        assertEquals(0, CONNECTIONS.get());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    private static class CountingDataSource extends DelegatingDataSource {
+
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            CONNECTIONS.incrementAndGet();
+            return super.getConnection();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.moetawol.book.book;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static com.moetawol.book.book.BookIndexFixture.OWNER;
+import static com.moetawol.book.book.BookIndexFixture.READER;
+import static com.moetawol.book.book.BookIndexFixture.changed;
+import static com.moetawol.book.book.BookIndexFixture.document;
+import static com.moetawol.book.book.BookIndexFixture.loader;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookSearchIndexTest {
+
+    private final BookRepository bookRepository = mock(BookRepository.class);
+    private final BookSearchIndex index = new BookSearchIndex(bookRepository, loader(100));
+
+    private final BookSearchDocument dune = document("Dune", "Frank Herbert", "978-0-441-17271-9", "Desert planet politics", OWNER, false, true);
+    private final BookSearchDocument messiah = document("Dune Messiah", "Frank Herbert", "978-0-593-09823-5", "Sequel set on the same desert planet", OWNER, false, true);
+    private final BookSearchDocument archived = document("Dune Encyclopedia", "Willis McNelly", null, "Dune reference", OWNER, true, true);
+    private final BookSearchDocument own = document("Dune notes", "Reader", READER, false, true);
+
+    @BeforeEach
+    void setUp() {
+        when(bookRepository.findSearchDocumentsAfter(any(), any())).thenReturn(List.of(dune, messiah, archived, own));
+        index.rebuild();
+    }
+
+    @Test
+    void ranksMatchesAndHidesBooksTheReaderCannotBorrow() {
+        BookSearchIndex.SearchHits hits = index.search("dune", READER, 0, 10);
+
+        assertEquals(2, hits.total());
+        // Shorter document with the term in the title ranks first
+        assertEquals(List.of(dune.id(), messiah.id()), hits.bookIds());
+    }
+
+    @Test
+    void matchesIsbnWithOrWithoutHyphensAndIgnoresAccents() {
+        assertEquals(List.of(messiah.id()), index.search("9780593098235", READER, 0, 10).bookIds());
+        assertEquals(List.of(dune.id()), index.search("Hérbert polítics", READER, 0, 1).bookIds());
+    }
+
+    @Test
+    void appliesCommittedChanges() {
+        index.apply(dune.id(), Optional.of(changed(dune, "Children of Dune", null, true)));
+
+        assertEquals(List.of(dune.id()), index.search("children", READER, 0, 10).bookIds());
+        assertEquals(0, index.search("politics", READER, 0, 10).total());
+    }
+
+    @Test
+    void reappliesChangesMadeDuringARebuildWithoutQueryingAgain() {
+        // The rebuild reads the old title, the change commits before the swap
+        when(bookRepository.findSearchDocumentsAfter(any(), any())).thenAnswer(invocation -> {
+            index.apply(dune.id(), Optional.of(changed(dune, "Children of Dune", null, true)));
+            return List.of(dune, messiah);
+        });
+
+        index.rebuild();
+
+        assertEquals(List.of(dune.id()), index.search("children", READER, 0, 10).bookIds());
+        verify(bookRepository, never()).findSearchDocument(any());
+    }
+
+    @Test
+    void keepsTheRankingOfABookReappliedManyTimes() {
+        List<BookSearchDocument> others = IntStream.range(0, 20)
+                .mapToObj(i -> document("Book " + i, "Author " + i, OWNER, false, true))
+                .toList();
+        index.applyAll(others);
+        List<UUID> before = index.search("dune", READER, 0, 10).bookIds();
+
+        // Every borrow, return or rating re-adds the book
+        for (int i = 0; i < 50; i++) {
+            index.apply(dune.id(), Optional.of(dune));
+        }
+
+        assertEquals(before, index.search("dune", READER, 0, 10).bookIds());
+        assertEquals(dune.id(), before.get(0));
+    }
+
+    @Test
+    void hidesBooksWithoutOwner() {
+        index.applyAll(List.of(new BookSearchDocument(UUID.randomUUID(), "Orphan", null, null, null, null, false, true)));
+
+        assertEquals(0, index.search("orphan", READER, 0, 10).total());
+    }
+}
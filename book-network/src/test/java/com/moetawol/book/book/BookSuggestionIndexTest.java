@@ -0,0 +1,141 @@
+package com.moetawol.book.book;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static com.moetawol.book.book.BookIndexFixture.loader;
+import static com.moetawol.book.book.BookIndexFixture.suggestion;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookSuggestionIndexTest {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSuggestionIndexTest.class);
+
+    private final BookRepository bookRepository = mock(BookRepository.class);
+    private final BookSuggestionIndex index = new BookSuggestionIndex(bookRepository, loader(100));
+
+    private final BookSuggestionSource dune = suggestion("Dune", "Frank Herbert", false, 40);
+    private final BookSuggestionSource messiah = suggestion("Dune Messiah", "Frank Herbert", false, 5);
+    private final BookSuggestionSource duneRoad = suggestion("Dunes of the Road", "Anna Dunlop", false, 12);
+    private final BookSuggestionSource hidden = suggestion("Dune Notes", "Reader", true, 100);
+
+    @BeforeEach
+    void setUp() {
+        when(bookRepository.findSuggestionSourcesAfter(any(), any())).thenReturn(List.of(dune, messiah, duneRoad, hidden));
+        index.rebuild();
+    }
+
+    @Test
+    void suggestsTitlesAndAuthorsByPopularity() {
+        assertEquals(
+                List.of(
+                        new BookSuggestion("Dune", BookSuggestion.Type.TITLE),
+                        // Same popularity as the title, ties are alphabetical
+                        new BookSuggestion("Anna Dunlop", BookSuggestion.Type.AUTHOR),
+                        new BookSuggestion("Dunes of the Road", BookSuggestion.Type.TITLE)
+                ),
+                index.suggest("DÛN", 3)
+        );
+        // Authors sum the popularity of their books; a prefix may start at any of the first words
+        assertEquals(List.of(new BookSuggestion("Frank Herbert", BookSuggestion.Type.AUTHOR)), index.suggest("herb", 10));
+        assertEquals(List.of(new BookSuggestion("Dune Messiah", BookSuggestion.Type.TITLE)), index.suggest("messiah", 10));
+    }
+
+    @Test
+    void appliesCommittedChanges() {
+        BookSuggestionSource archived = new BookSuggestionSource(dune.id(), dune.title(), dune.authorName(), true, true, 40);
+
+        index.apply(dune.id(), Optional.of(archived));
+
+        assertEquals(
+                List.of(
+                        new BookSuggestion("Anna Dunlop", BookSuggestion.Type.AUTHOR),
+                        new BookSuggestion("Dunes of the Road", BookSuggestion.Type.TITLE),
+                        new BookSuggestion("Dune Messiah", BookSuggestion.Type.TITLE)
+                ),
+                index.suggest("dun", 10)
+        );
+    }
+
+    // mvn test -Dtest=BookSuggestionIndexTest -Dbenchmark=true -DargLine=-Xmx3g [-Dbenchmark.books=1000000]
+    // Lookup latency over random prefixes of one to six characters, and the heap retained by the index
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkSuggest() {
+        int books = Integer.getInteger("benchmark.books", 1_000_000);
+        Random random = new Random(42);
+        String[] words = IntStream.range(0, 20_000).mapToObj(i -> word(random)).toArray(String[]::new);
+        String[] authors = IntStream.range(0, 50_000)
+                .mapToObj(i -> capitalize(word(random)) + " " + capitalize(word(random)))
+                .toArray(String[]::new);
+        BookSuggestionIndex large = new BookSuggestionIndex(bookRepository, loader(10_000));
+
+        long heapBefore = usedHeap();
+        for (int from = 0; from < books; from += 10_000) {
+            large.applyAll(IntStream.range(from, Math.min(from + 10_000, books))
+                    .mapToObj(i -> new BookSuggestionSource(UUID.randomUUID(),
+                            capitalize(words[random.nextInt(words.length)]) + " " + words[random.nextInt(words.length)]
+                                    + " " + words[random.nextInt(words.length)],
+                            authors[random.nextInt(authors.length)], false, true, random.nextInt(100)))
+                    .toList());
+        }
+        long retained = usedHeap() - heapBefore;
+
+        String[] prefixes = IntStream.range(0, 200_000)
+                .mapToObj(i -> {
+                    String word = words[random.nextInt(words.length)];
+                    return word.substring(0, 1 + random.nextInt(Math.min(6, word.length())));
+                })
+                .toArray(String[]::new);
+        // Warm-up, then one timing per lookup
+        for (String prefix : prefixes) {
+            large.suggest(prefix, BookSuggestionIndex.MAX_SUGGESTIONS);
+        }
+        long[] nanos = new long[prefixes.length];
+        for (int i = 0; i < prefixes.length; i++) {
+            long start = System.nanoTime();
+            large.suggest(prefixes[i], BookSuggestionIndex.MAX_SUGGESTIONS);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+
+        log.info("{} books: p50 {} us, p99 {} us, max {} us per lookup; index retains {} MB ({} MB per million books)",
+                books, nanos[nanos.length / 2] / 1_000, nanos[nanos.length * 99 / 100] / 1_000, nanos[nanos.length - 1] / 1_000,
+                retained >> 20, (retained >> 20) * 1_000_000 / books);
+        assertTrue(nanos[nanos.length * 99 / 100] < 1_000_000, "p99 lookup over a millisecond");
+    }
+
+    private static String word(Random random) {
+        char[] letters = new char[3 + random.nextInt(7)];
+        for (int i = 0; i < letters.length; i++) {
+            letters[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(letters);
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
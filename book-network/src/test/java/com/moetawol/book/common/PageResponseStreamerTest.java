@@ -0,0 +1,91 @@
+package com.moetawol.book.common;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moetawol.book.book.Book;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PageResponseStreamerTest {
+
+    private static final Comparator<Book> NEWEST_FIRST = Comparator.comparing(Book::getCreatedDate)
+            .thenComparing(Book::getId)
+            .reversed();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final PageResponseStreamer streamer = new PageResponseStreamer(objectMapper, transactionManager);
+
+    private final LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0);
+    private final List<Book> books = IntStream.range(0, 25)
+            .mapToObj(i -> book(UUID.randomUUID(), "Title " + i, now.minusMinutes(i)))
+            .sorted(NEWEST_FIRST)
+            .toList();
+    private final List<Integer> fetchedLimits = new ArrayList<>();
+
+    @Test
+    void writesThePageInBatchesWithACursorToTheNextOne() throws IOException {
+        ReflectionTestUtils.setField(streamer, "batchSize", 4);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        JsonNode page = stream(PageCursor.START, 10);
+
+        assertEquals(List.of(5, 5, 3), fetchedLimits);
+        // One short transaction per batch
+        verify(transactionManager, times(3)).getTransaction(any());
+        verify(transactionManager, times(3)).commit(any());
+        assertEquals(10, page.get("content").size());
+        assertEquals("Title 0", page.get("content").get(0).asText());
+        assertEquals("Title 9", page.get("content").get(9).asText());
+        assertTrue(page.get("first").asBoolean());
+        assertFalse(page.get("last").asBoolean());
+        assertEquals(-1, page.get("totalElements").asInt());
+
+        JsonNode next = stream(PageCursor.decode(page.get("nextCursor").asText()), 100);
+
+        assertEquals(15, next.get("content").size());
+        assertEquals("Title 10", next.get("content").get(0).asText());
+        assertTrue(next.get("last").asBoolean());
+        assertFalse(next.has("nextCursor"));
+    }
+
+    private JsonNode stream(PageCursor start, int size) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        streamer.write(out, start, size, this::fetchAfter, Book::getTitle);
+        return objectMapper.readTree(out.toByteArray());
+    }
+
+    private List<Book> fetchAfter(PageCursor after, Pageable limit) {
+        fetchedLimits.add(limit.getPageSize());
+        Book cursor = book(after.id(), null, after.createdDate());
+        return books.stream()
+                .filter(book -> NEWEST_FIRST.compare(book, cursor) > 0)
+                .limit(limit.getPageSize())
+                .toList();
+    }
+
+    private static Book book(UUID id, String title, LocalDateTime createdDate) {
+        return Book.builder().id(id).title(title).createdDate(createdDate).build();
+    }
+}
@@ -0,0 +1,115 @@
+package com.moetawol.book.common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeOrderedUuidGeneratorTest {
+
+    @Test
+    void idsAreVersion7AndIncreaseInStorageOrder() {
+        long millis = System.currentTimeMillis();
+        List<UUID> ids = Stream.generate(TimeOrderedUuidGenerator::next).limit(10_000).toList();
+
+        for (int i = 0; i < ids.size(); i++) {
+            UUID id = ids.get(i);
+            assertEquals(7, id.version());
+            assertEquals(2, id.variant());
+            assertTrue(id.getMostSignificantBits() >>> 16 >= millis);
+            if (i > 0) {
+                // binary(16) compares unsigned bytes, most significant first
+                assertTrue(Long.compareUnsigned(ids.get(i - 1).getMostSignificantBits(), id.getMostSignificantBits()) < 0);
+            }
+        }
+    }
+
+    @Test
+    void idsKeepIncreasingWhenTheCounterRunsOutOrTheClockGoesBack() {
+        long millis = System.currentTimeMillis() + 60_000;
+        UUID previous = TimeOrderedUuidGenerator.next(millis);
+        // 4096 ids fit in one millisecond, the next ones borrow the following milliseconds
+        for (int i = 0; i < 10_000; i++) {
+            UUID id = TimeOrderedUuidGenerator.next(i < 5_000 ? millis : millis - 1_000);
+            assertTrue(Long.compareUnsigned(previous.getMostSignificantBits(), id.getMostSignificantBits()) < 0);
+            previous = id;
+        }
+        assertEquals(millis + 2, previous.getMostSignificantBits() >>> 16);
+    }
+
+    // mvn test -Dtest=TimeOrderedUuidGeneratorTest -Dbenchmark=true [-Dbenchmark.rows=10000000]
+    // Inserts the same rows keyed by random and by time-ordered ids into a file database shaped like the book table
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkInsertsWithRandomAndTimeOrderedIds() throws SQLException, IOException {
+        int rows = Integer.getInteger("benchmark.rows", 1_000_000);
+        List<UUID> owners = Stream.generate(UUID::randomUUID).limit(1_000).toList();
+        for (var scheme : List.<Supplier<UUID>>of(UUID::randomUUID, TimeOrderedUuidGenerator::next)) {
+            String name = scheme.get().version() == 4 ? "random" : "time-ordered";
+            Path directory = Files.createDirectories(Paths.get("target", "uuid-benchmark"));
+            Path file = directory.resolve(name + ".mv.db");
+            Files.deleteIfExists(file);
+            String url = "jdbc:h2:file:" + directory.toAbsolutePath().resolve(name) + ";MODE=MySQL";
+
+            List<String> checkpoints = new ArrayList<>();
+            long start = System.nanoTime();
+            try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("""
+                            create table book (
+                                id binary(16) not null primary key,
+                                owner_id binary(16) not null,
+                                created_date timestamp(6) not null,
+                                title varchar(255)
+                            )
+                            """);
+                    statement.execute("create index idx_book_owner_created on book (owner_id, created_date, id)");
+                }
+                connection.setAutoCommit(false);
+                long segmentStart = System.nanoTime();
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "insert into book (id, owner_id, created_date, title) values (?, ?, ?, ?)")) {
+                    for (int i = 1; i <= rows; i++) {
+                        insert.setObject(1, scheme.get());
+                        insert.setObject(2, owners.get(i % owners.size()));
+                        insert.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+                        insert.setString(4, "Title " + i);
+                        insert.addBatch();
+                        if (i % 1_000 == 0) {
+                            insert.executeBatch();
+                            connection.commit();
+                        }
+                        // Throughput of each tenth of the run, to see it fall off as the table grows
+                        if (i % (rows / 10) == 0) {
+                            long now = System.nanoTime();
+                            checkpoints.add("%.0f".formatted(rows / 10 / ((now - segmentStart) / 1e9)));
+                            segmentStart = now;
+                        }
+                    }
+                }
+                connection.commit();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%s ids: %d rows in %.1f s, %.0f rows/s (per tenth: %s rows/s), database file %d MB%n",
+                    name, rows, seconds, rows / seconds, String.join(", ", checkpoints), Files.size(file) >> 20);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.moetawol.book.common;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TotalCountEstimatorTest {
+
+    private final TotalCountEstimator estimator = new TotalCountEstimator();
+    private final AtomicInteger counts = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(estimator, "maxEntries", 100);
+        ReflectionTestUtils.setField(estimator, "idleTimeout", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(estimator, "refreshBatchSize", 3);
+    }
+
+    @Test
+    void refreshesABoundedNumberOfEstimatesPerRunStalestFirst() {
+        IntStream.range(0, 5).forEach(i -> estimator.count(TotalMode.ESTIMATED, "list-" + i, this::count));
+        assertEquals(5, counts.get());
+
+        estimator.refreshEstimates();
+        assertEquals(8, counts.get());
+        assertEquals(3, refreshed());
+
+        // The two left out last time go first
+        estimator.refreshEstimates();
+        assertEquals(11, counts.get());
+        assertEquals(5, refreshed());
+    }
+
+    @Test
+    void servesEstimatesWithoutCounting() {
+        assertEquals(1, estimator.count(TotalMode.ESTIMATED, "books", this::count));
+        assertEquals(1, estimator.count(TotalMode.ESTIMATED, "books", this::count));
+        assertEquals(PageResponse.UNKNOWN_TOTAL, estimator.count(TotalMode.NONE, "books", this::count));
+        assertEquals(1, counts.get());
+    }
+
+    @Test
+    void replacesTheLeastRecentlyUsedEstimateWhenFull() throws InterruptedException {
+        ReflectionTestUtils.setField(estimator, "maxEntries", 3);
+        IntStream.range(0, 3).forEach(i -> estimator.count(TotalMode.ESTIMATED, "list-" + i, this::count));
+        Thread.sleep(5);
+        // list-0 is asked for again, list-1 is now the least recently used
+        estimator.count(TotalMode.ESTIMATED, "list-0", this::count);
+        estimator.count(TotalMode.ESTIMATED, "list-2", this::count);
+
+        assertEquals(4, estimator.count(TotalMode.ESTIMATED, "list-3", this::count));
+        assertEquals(4, estimator.count(TotalMode.ESTIMATED, "list-3", this::count));
+        assertEquals(1, estimator.count(TotalMode.ESTIMATED, "list-0", this::count));
+        assertEquals(3, estimator.count(TotalMode.ESTIMATED, "list-2", this::count));
+        assertEquals(4, counts.get());
+        // Counted again
+        assertEquals(5, estimator.count(TotalMode.ESTIMATED, "list-1", this::count));
+    }
+
+    // First counts are 1 to 5, any later one is above
+    private long refreshed() {
+        return IntStream.range(0, 5)
+                .filter(i -> estimator.count(TotalMode.ESTIMATED, "list-" + i, this::count) > 5)
+                .count();
+    }
+
+    private long count() {
+        return counts.incrementAndGet();
+    }
+}
@@ -0,0 +1,278 @@
+package com.moetawol.book.email;
+
+import com.moetawol.book.JpaTestConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.hibernate.dialect.H2Dialect;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Claims, sends and results commit on their own, so the test runs outside the usual rolled-back test transaction
+@DataJpaTest(properties = {
+        "application.mailing.outbox.poll-interval=PT1H",
+        "application.mailing.outbox.max-attempts=3",
+        "application.mailing.outbox.initial-backoff=PT30S",
+        "application.mailing.outbox.max-backoff=PT1H",
+        "application.mailing.outbox.claim-timeout=PT5M",
+        "spring.jpa.properties.hibernate.dialect=com.moetawol.book.email.EmailOutboxDispatcherTest$SkipLockedH2Dialect"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({EmailOutboxDispatcher.class, EmailService.class, EmailTemplateRegistry.class, JpaTestConfig.class})
+class EmailOutboxDispatcherTest {
+
+    @Autowired
+    private EmailOutboxDispatcher dispatcher;
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private EntityManager entityManager;
+
+    @MockitoBean
+    private JavaMailSender mailSender;
+
+    @TestConfiguration
+    static class MetricsConfig {
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    // H2 skips locked rows as MySQL 8 does, Hibernate's H2Dialect just never asks it to
+    public static class SkipLockedH2Dialect extends H2Dialect {
+        @Override
+        public boolean supportsSkipLocked() {
+            return true;
+        }
+
+        @Override
+        public String getForUpdateSkipLockedString() {
+            return " for update skip locked";
+        }
+
+        @Override
+        public String getForUpdateSkipLockedString(String aliases) {
+            return getForUpdateSkipLockedString();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        when(mailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        outboxRepository.deleteAll();
+    }
+
+    @Test
+    void sendsTheClaimedBatchOutsideAnyTransaction() {
+        UUID first = outboxRepository.save(pending("first@mail.com", 0)).getId();
+        UUID second = outboxRepository.save(pending("second@mail.com", 0)).getId();
+        List<Boolean> transactionDuringSend = new ArrayList<>();
+        List<Integer> dueDuringSend = new ArrayList<>();
+        doAnswer(invocation -> {
+            transactionDuringSend.add(TransactionSynchronizationManager.isActualTransactionActive());
+            // The lease is committed: nothing is due for another instance while the batch is on its way
+            dueDuringSend.add(new TransactionTemplate(transactionManager).execute(status ->
+                    outboxRepository.findDueMessages(LocalDateTime.now(), PageRequest.of(0, 10)).size()));
+            return null;
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        dispatcher.dispatch();
+
+        verify(mailSender, times(1)).send(any(MimeMessage[].class));
+        assertEquals(List.of(false), transactionDuringSend);
+        assertEquals(List.of(0), dueDuringSend);
+        for (UUID id : List.of(first, second)) {
+            EmailOutboxMessage email = outboxRepository.findById(id).orElseThrow();
+            assertEquals(EmailOutboxStatus.SENT, email.getStatus());
+            assertNotNull(email.getSentAt());
+        }
+    }
+
+    @Test
+    void schedulesRetriesWithExponentialBackoff() {
+        UUID firstFailure = outboxRepository.save(pending("first@mail.com", 0)).getId();
+        UUID secondFailure = outboxRepository.save(pending("second@mail.com", 1)).getId();
+        doThrow(new MailAuthenticationException("Bad credentials")).when(mailSender).send(any(MimeMessage[].class));
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatch();
+        LocalDateTime after = LocalDateTime.now();
+
+        assertRetriedAfter(firstFailure, 1, Duration.ofSeconds(30), before, after);
+        assertRetriedAfter(secondFailure, 2, Duration.ofSeconds(60), before, after);
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        UUID lastAttempt = outboxRepository.save(pending("last@mail.com", 2)).getId();
+        doThrow(new MailSendException("Connection refused")).when(mailSender).send(any(MimeMessage[].class));
+
+        dispatcher.dispatch();
+
+        EmailOutboxMessage email = outboxRepository.findById(lastAttempt).orElseThrow();
+        assertEquals(EmailOutboxStatus.DEAD, email.getStatus());
+        assertEquals(3, email.getAttempts());
+        assertEquals("Connection refused", email.getLastError());
+        assertEquals(1, meterRegistry.counter("email.outbox.dead").count());
+
+        dispatcher.dispatch();
+        verify(mailSender, times(1)).send(any(MimeMessage[].class));
+    }
+
+    @Test
+    void retriesOnlyTheMessagesThatFailedInTheBatch() {
+        UUID delivered = outboxRepository.save(pending("reader@mail.com", 0)).getId();
+        UUID bounced = outboxRepository.save(pending("bounce@mail.com", 0)).getId();
+        doAnswer(invocation -> {
+            MimeMessage rejected = Arrays.stream(invocation.getArguments()).map(MimeMessage.class::cast)
+                    .filter(message -> recipient(message).equals("bounce@mail.com"))
+                    .findFirst()
+                    .orElseThrow();
+            throw new MailSendException(Map.of(rejected, new MessagingException("550 Mailbox unavailable")));
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        dispatcher.dispatch();
+
+        assertEquals(EmailOutboxStatus.SENT, outboxRepository.findById(delivered).orElseThrow().getStatus());
+        EmailOutboxMessage retried = outboxRepository.findById(bounced).orElseThrow();
+        assertEquals(EmailOutboxStatus.PENDING, retried.getStatus());
+        assertEquals(1, retried.getAttempts());
+        assertEquals("550 Mailbox unavailable", retried.getLastError());
+    }
+
+    @Test
+    void skipsMessagesLockedByAnotherInstance() throws Exception {
+        UUID locked = outboxRepository.save(pending("locked@mail.com", 0, LocalDateTime.now().minusMinutes(1))).getId();
+        UUID free = outboxRepository.save(pending("free@mail.com", 0)).getId();
+        List<String> sentTo = new ArrayList<>();
+        doAnswer(invocation -> {
+            Arrays.stream(invocation.getArguments()).map(MimeMessage.class::cast).forEach(message -> sentTo.add(recipient(message)));
+            return null;
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService otherInstance = Executors.newSingleThreadExecutor();
+        try {
+            // Holds the row lock of one message, as an instance in the middle of its claim would
+            Future<?> otherClaim = otherInstance.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                entityManager.find(EmailOutboxMessage.class, locked, LockModeType.PESSIMISTIC_WRITE);
+                claimed.countDown();
+                await(release);
+            }));
+            assertTrue(claimed.await(5, TimeUnit.SECONDS));
+
+            dispatcher.dispatch();
+            release.countDown();
+            otherClaim.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            otherInstance.shutdownNow();
+        }
+
+        assertEquals(List.of("free@mail.com"), sentTo);
+        assertEquals(EmailOutboxStatus.SENT, outboxRepository.findById(free).orElseThrow().getStatus());
+        EmailOutboxMessage skipped = outboxRepository.findById(locked).orElseThrow();
+        assertEquals(EmailOutboxStatus.PENDING, skipped.getStatus());
+        assertEquals(0, skipped.getAttempts());
+        assertFalse(skipped.getNextAttemptAt().isAfter(LocalDateTime.now()));
+    }
+
+    private void assertRetriedAfter(UUID id, int attempts, Duration backoff, LocalDateTime before, LocalDateTime after) {
+        EmailOutboxMessage email = outboxRepository.findById(id).orElseThrow();
+        assertEquals(EmailOutboxStatus.PENDING, email.getStatus());
+        assertEquals(attempts, email.getAttempts());
+        assertEquals("Bad credentials", email.getLastError());
+        assertFalse(email.getNextAttemptAt().isBefore(before.plus(backoff)));
+        assertFalse(email.getNextAttemptAt().isAfter(after.plus(backoff)));
+    }
+
+    private static EmailOutboxMessage pending(String recipient, int attempts) {
+        return pending(recipient, attempts, LocalDateTime.now());
+    }
+
+    private static EmailOutboxMessage pending(String recipient, int attempts, LocalDateTime nextAttemptAt) {
+        return EmailOutboxMessage.builder()
+                .recipient(recipient)
+                .username("reader")
+                .template(EmailTemplateName.ACTIVATE_ACCOUNT)
+                .confirmationUrl("https://example.com/activate")
+                .activationCode("123456")
+                .subject("Account activation")
+                .status(EmailOutboxStatus.PENDING)
+                .attempts(attempts)
+                .nextAttemptAt(nextAttemptAt)
+                .createdAt(nextAttemptAt)
+                .build();
+    }
+
+    private static String recipient(MimeMessage message) {
+        try {
+            return message.getRecipients(Message.RecipientType.TO)[0].toString();
+        } catch (MessagingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.moetawol.book.email;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.support.GenericApplicationContext;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.spring6.templateresolver.SpringResourceTemplateResolver;
+import org.thymeleaf.templatemode.TemplateMode;
+
+import java.util.Map;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailTemplateRegistryTest {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailTemplateRegistryTest.class);
+
+    private final EmailTemplateRegistry registry = new EmailTemplateRegistry();
+
+    @Test
+    void rendersTheVariablesOfEachMessage() {
+        String first = registry.render(EmailTemplateName.ACTIVATE_ACCOUNT, variables(1));
+        String second = registry.render(EmailTemplateName.ACTIVATE_ACCOUNT, variables(2));
+
+        assertTrue(first.contains("Hello user1,"));
+        assertTrue(first.contains("code-1"));
+        assertTrue(second.contains("https://example.com/activate?token=2"));
+        assertFalse(second.contains("code-1"));
+    }
+
+    // mvn test -Dtest=EmailTemplateRegistryTest -Dbenchmark=true [-Dbenchmark.messages=100000]
+    // Render cost per message against the engine EmailService used before, configured as Spring Boot does
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkRender() {
+        int messages = Integer.getInteger("benchmark.messages", 100_000);
+        SpringTemplateEngine cachedEngine = bootEngine(true);
+        SpringTemplateEngine uncachedEngine = bootEngine(false);
+
+        // Same output, so the paths are comparable
+        assertEquals(
+                registry.render(EmailTemplateName.ACTIVATE_ACCOUNT, variables(0)),
+                cachedEngine.process("activate_account", new Context(null, variables(0)))
+        );
+
+        // Rounds interleave the paths so JIT warm-up and GC favour none of them; the best round is reported
+        double registryMicros = Double.MAX_VALUE;
+        double cachedMicros = Double.MAX_VALUE;
+        double uncachedMicros = Double.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            registryMicros = Math.min(registryMicros, microsPerMessage(messages,
+                    i -> registry.render(EmailTemplateName.ACTIVATE_ACCOUNT, variables(i))));
+            cachedMicros = Math.min(cachedMicros, microsPerMessage(messages,
+                    i -> cachedEngine.process("activate_account", new Context(null, variables(i)))));
+            uncachedMicros = Math.min(uncachedMicros, microsPerMessage(messages / 10,
+                    i -> uncachedEngine.process("activate_account", new Context(null, variables(i)))));
+        }
+
+        log.info("Render per message: registry {} us, Boot engine with spring.thymeleaf.cache=true {} us, "
+                        + "with spring.thymeleaf.cache=false {} us",
+                format(registryMicros), format(cachedMicros), format(uncachedMicros));
+    }
+
+    // Warm-up on the first half, timing on the second
+    private static double microsPerMessage(int messages, Function<Integer, String> render) {
+        long length = 0;
+        for (int i = 0; i < messages; i++) {
+            length += render.apply(i).length();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            length += render.apply(i).length();
+        }
+        double micros = (System.nanoTime() - start) / 1_000.0 / messages;
+        assertTrue(length > 0);
+        return micros;
+    }
+
+    // What ThymeleafAutoConfiguration builds from the defaults: classpath:/templates/, HTML, UTF-8
+    private static SpringTemplateEngine bootEngine(boolean cacheable) {
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.refresh();
+        SpringResourceTemplateResolver resolver = new SpringResourceTemplateResolver();
+        resolver.setApplicationContext(context);
+        resolver.setPrefix("classpath:/templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding(UTF_8.name());
+        resolver.setCacheable(cacheable);
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        return engine;
+    }
+
+    private static Map<String, Object> variables(int i) {
+        return Map.of(
+                "username", "user" + i,
+                "confirmationUrl", "https://example.com/activate?token=" + i,
+                "activation_code", "code-" + i
+        );
+    }
+
+    private static String format(double micros) {
+        return String.format("%.1f", micros);
+    }
+}
@@ -0,0 +1,50 @@
+package com.moetawol.book.security;
+
+import com.moetawol.book.role.Role;
+import com.moetawol.book.user.User;
+import com.moetawol.book.user.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static com.moetawol.book.JpaFixture.readerRole;
+import static com.moetawol.book.JpaFixture.user;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserPrincipalCacheTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final UserPrincipalCache cache = new UserPrincipalCache(userRepository, transactionManager);
+
+    @Test
+    void onlyAMissOpensATransaction() {
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(cache, "maxSize", 10);
+        Role role = readerRole();
+        User reader = user("reader", role);
+        reader.setId(UUID.randomUUID());
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(userRepository.findByEmail("reader@mail.com")).thenReturn(Optional.of(reader));
+
+        AuthenticatedUser loaded = cache.findByEmail("reader@mail.com").orElseThrow();
+        AuthenticatedUser hit = cache.findByEmail("reader@mail.com").orElseThrow();
+
+        assertEquals(reader.getId(), hit.getId());
+        assertEquals(List.of("READER"), hit.getAuthorities().stream().map(Object::toString).toList());
+        assertEquals(loaded, hit);
+        verify(userRepository, times(1)).findByEmail("reader@mail.com");
+        verify(transactionManager, times(1)).getTransaction(any());
+    }
+}